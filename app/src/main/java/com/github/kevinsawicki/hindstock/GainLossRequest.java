@@ -15,131 +15,90 @@
  */
 package com.github.kevinsawicki.hindstock;
 
-import android.os.AsyncTask;
-
-import com.github.kevinsawicki.http.HttpRequest.HttpRequestException;
-import com.github.kevinsawicki.stocks.DateUtils;
-import com.github.kevinsawicki.stocks.StockQuoteRequest;
+import android.content.Context;
+import android.util.Log;
 
 import java.io.IOException;
+import java.text.MessageFormat;
 import java.util.Calendar;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * Request class to compute the gain/loss
+ * Request class to compute the gain/loss, run through the
+ * {@link RetainedLoader} under {@link #getKey()}
+ * <p>
+ * The buy and sell prices are requested together when the dates are close
+ * enough and concurrently otherwise so a calculation takes about as long as
+ * the slower of the two requests.
  */
-public abstract class GainLossRequest extends AsyncTask<Void, Integer, Quote> {
+public class GainLossRequest implements RetainedLoader.Load<Quote> {
+
+  /**
+   * Prefix of the keys of all requests
+   */
+  private static final String KEY_PREFIX = "quote:";
 
-  private final String symbol;
+  private static final String TAG = "GainLossRequest";
 
-  private final float shares;
+  private static final ExecutorService EXECUTOR = Executors
+      .newFixedThreadPool(4);
 
-  private final float dollars;
+  private static final AtomicInteger SAVED = new AtomicInteger();
 
-  private final Calendar buyDate;
+  /**
+   * Bars fetched by earlier requests kept in memory, limited to 4MB or about
+   * 150,000 bars
+   */
+  private static final PriceStore STORE = new PriceStore(4 * 1024 * 1024);
 
-  private final Calendar sellDate;
+  private static final TradingCalendar CALENDAR = new TradingCalendar();
 
-  private IOException exception;
+  private final PriceResolver resolver;
+
+  private final Purchase purchase;
 
   /**
    * Create request
    *
+   * @param context
    * @param symbol
    * @param shares
-   * @param dollars
+   *          millionths of a share
+   * @param cents
    * @param buyDate
    * @param sellDate
    */
-  public GainLossRequest(final String symbol, final float shares,
-      final float dollars, final Calendar buyDate, final Calendar sellDate) {
-    this.symbol = symbol;
-    this.shares = shares;
-    this.dollars = dollars;
-    this.buyDate = buyDate;
-    this.sellDate = sellDate;
+  public GainLossRequest(final Context context, final String symbol,
+      final long shares, final long cents, final Calendar buyDate,
+      final Calendar sellDate) {
+    resolver = new PriceResolver(PriceCache.getInstance(context), STORE,
+        CALENDAR, EXECUTOR, null);
+    purchase = new Purchase(symbol, shares, cents,
+        EpochDays.toDay(buyDate), EpochDays.toDay(sellDate));
   }
 
   /**
-   * @return exception
+   * Get key identifying this request, equal for requests of the same purchase
+   *
+   * @return key
    */
-  public IOException getException() {
-    return exception;
+  public String getKey() {
+    return KEY_PREFIX + purchase.symbol + ':' + purchase.shares + ':'
+        + purchase.cents + ':' + purchase.buyDay + ':' + purchase.sellDay;
   }
 
   @Override
-  protected Quote doInBackground(Void... params) {
-    exception = null;
-    try {
-      float buyPrice = getBuyPrice();
-      float sellPrice = getSellPrice();
-      float totalShares;
-      if (dollars > 0)
-        totalShares = dollars / buyPrice;
-      else
-        totalShares = shares;
-      return new Quote(buyPrice, sellPrice, totalShares);
-    } catch (IOException e) {
-      exception = e;
-      return null;
-    }
-  }
-
-  private float getBuyPrice() throws IOException {
-    StockQuoteRequest buyRequest = new StockQuoteRequest();
-    buyRequest.setStartDate(DateUtils.addDays(-7, buyDate)).setEndDate(buyDate)
-        .setSymbol(symbol);
-
-    try {
-      if (!buyRequest.next())
-        throw new InvalidBuyDateException();
-    } catch (HttpRequestException e) {
-      throw e.getCause();
-    }
-
-    float price = buyRequest.getOpen();
-    if (price <= 0.0F)
-      price = buyRequest.getClose();
-    return price;
-
-  }
-
-  private float getSellPrice() throws IOException {
-    StockQuoteRequest sellRequest = new StockQuoteRequest();
-    sellRequest.setStartDate(DateUtils.addDays(-7, sellDate))
-        .setEndDate(sellDate).setSymbol(symbol);
-
+  public Quote load() throws IOException {
     try {
-      if (!sellRequest.next())
-        throw new InvalidSellDateException();
-    } catch (HttpRequestException e) {
-      throw e.getCause();
+      return resolver.getQuote(purchase);
+    } finally {
+      int saved = resolver.getSavedCount();
+      Log.d(TAG, MessageFormat.format(
+          "HTTP requests: {0} Saved: {1} Total saved: {2} Retries: {3}",
+          resolver.getRequestCount(), saved, SAVED.addAndGet(saved),
+          resolver.getRetryCount()));
     }
-
-    float price = sellRequest.getClose();
-    if (price <= 0.0F)
-      price = sellRequest.getOpen();
-    return price;
-  }
-
-  @Override
-  protected void onPostExecute(final Quote result) {
-    if (result != null)
-      onSuccess(result);
-    else
-      onFailure(exception);
   }
-
-  /**
-   * Called after request completes and the net amount has been computed
-   *
-   * @param quote
-   */
-  protected abstract void onSuccess(Quote quote);
-
-  /**
-   * Called when request fails providing the cause of the failure
-   *
-   * @param cause
-   */
-  protected abstract void onFailure(IOException cause);
 }
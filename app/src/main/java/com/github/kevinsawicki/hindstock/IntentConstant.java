@@ -27,6 +27,11 @@ public enum IntentConstant {
    */
   EXTRA_QUOTE("quote"),
 
+  /**
+   * Handle to the key of a running {@link GainLossRequest}
+   */
+  EXTRA_REQUEST("request"),
+
   /**
    * Handle to a {@link Stock}
    */
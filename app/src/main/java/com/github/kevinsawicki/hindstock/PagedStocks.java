@@ -0,0 +1,299 @@
+/*
+ * Copyright 2012 Kevin Sawicki <kevinsawicki@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.kevinsawicki.hindstock;
+
+import android.database.Cursor;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.text.MessageFormat;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * Stocks ordered by symbol read from the {@link StocksCache} a page at a time
+ * <p>
+ * Each page is copied out of its cursor and the cursor closed so no cursor
+ * window stays open while the list scrolls. Only the {@link #MAX_PAGES} most
+ * recently used pages are kept so memory use doesn't grow with the number of
+ * stocks scrolled past.
+ * <p>
+ * Pages are read on a background thread, never on the UI thread. The page
+ * being displayed is read first followed by the pages before and after it so
+ * scrolling in either direction usually finds the next page already loaded.
+ * Reads queued for pages the list has since scrolled away from are skipped.
+ * Stocks on a page still
+ * being read are empty and the {@link Listener} is notified on the UI thread
+ * once the page arrives. All methods other than {@link #load(StocksCache)}
+ * must be called from the UI thread.
+ */
+public class PagedStocks {
+
+  /**
+   * Listener notified on the UI thread when a page has been read
+   */
+  public interface Listener {
+
+    /**
+     * Page of stocks was read
+     *
+     * @param page
+     */
+    void onPageLoaded(int page);
+  }
+
+  private static final String TAG = "PagedStocks";
+
+  private static final Executor EXECUTOR = Executors.newSingleThreadExecutor();
+
+  /**
+   * Number of stocks read per page
+   */
+  public static final int PAGE_SIZE = 64;
+
+  /**
+   * Maximum number of pages kept in memory
+   */
+  public static final int MAX_PAGES = 6;
+
+  private static class Page {
+
+    final String[] symbols;
+
+    final String[] names;
+
+    final String[] exchanges;
+
+    Page(final int size) {
+      symbols = new String[size];
+      names = new String[size];
+      exchanges = new String[size];
+    }
+  }
+
+  private final StocksCache cache;
+
+  private final SectionIndex sections;
+
+  private final LinkedHashMap<Integer, Page> pages = new LinkedHashMap<Integer, Page>(
+      MAX_PAGES * 2, 0.75F, true) {
+
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    protected boolean removeEldestEntry(final Entry<Integer, Page> eldest) {
+      return size() > MAX_PAGES;
+    }
+  };
+
+  private final Set<Integer> pending = new HashSet<Integer>();
+
+  private final Handler handler = new Handler(Looper.getMainLooper());
+
+  private Listener listener;
+
+  /**
+   * Page most recently displayed, read by the background thread to skip reads
+   * of pages no longer near it
+   */
+  private volatile int focus;
+
+  private int loads;
+
+  /**
+   * Create paged stocks, this queries the section index and the first page
+   * and should not be called from the UI thread
+   *
+   * @param cache
+   * @return paged stocks or null if the database could not be opened
+   */
+  public static PagedStocks load(final StocksCache cache) {
+    SectionIndex sections = cache.getSections();
+    if (sections == null)
+      return null;
+
+    PagedStocks stocks = new PagedStocks(cache, sections);
+    if (sections.getCount() > 0) {
+      stocks.pages.put(0, stocks.readPage(0));
+      stocks.loads++;
+    }
+    return stocks;
+  }
+
+  private PagedStocks(final StocksCache cache, final SectionIndex sections) {
+    this.cache = cache;
+    this.sections = sections;
+  }
+
+  /**
+   * @return number of stocks
+   */
+  public int getCount() {
+    return sections.getCount();
+  }
+
+  /**
+   * @return index of the sections of the stocks
+   */
+  public SectionIndex getSections() {
+    return sections;
+  }
+
+  /**
+   * Set listener notified when a page has been read
+   *
+   * @param listener
+   * @return this paged stocks
+   */
+  public PagedStocks setListener(final Listener listener) {
+    this.listener = listener;
+    return this;
+  }
+
+  /**
+   * @return number of pages read from the database
+   */
+  public int getLoadCount() {
+    return loads;
+  }
+
+  /**
+   * Read page from the database, called on a background thread
+   *
+   * @param number
+   * @return page
+   */
+  private Page readPage(final int number) {
+    long time = System.currentTimeMillis();
+    final int offset = number * PAGE_SIZE;
+    Page page = new Page(Math.min(PAGE_SIZE, getCount() - offset));
+    Cursor cursor = cache.getStocks(offset, page.symbols.length);
+    if (cursor != null)
+      try {
+        for (int i = 0; i < page.symbols.length && cursor.moveToNext(); i++) {
+          page.symbols[i] = cursor.getString(1);
+          page.names[i] = cursor.getString(2);
+          page.exchanges[i] = cursor.getString(3);
+        }
+      } finally {
+        cursor.close();
+      }
+    Log.d(TAG, MessageFormat.format("Page {0} read: {1}ms", number,
+        System.currentTimeMillis() - time));
+    return page;
+  }
+
+  /**
+   * Read page on the background thread unless already loaded or being read
+   * <p>
+   * The read is skipped if the list has scrolled more than a page away from
+   * it by the time the background thread gets to it.
+   *
+   * @param number
+   */
+  private void request(final int number) {
+    if (number < 0 || number * PAGE_SIZE >= getCount()
+        || pages.containsKey(number) || !pending.add(number))
+      return;
+
+    EXECUTOR.execute(new Runnable() {
+
+      @Override
+      public void run() {
+        final Page page = Math.abs(number - focus) <= 1 ? readPage(number)
+            : null;
+        handler.post(new Runnable() {
+
+          @Override
+          public void run() {
+            pending.remove(number);
+            if (page == null)
+              return;
+            pages.put(number, page);
+            loads++;
+            Log.d(TAG, MessageFormat.format("Page {0} loaded Loads: {1}",
+                number, loads));
+            if (listener != null)
+              listener.onPageLoaded(number);
+          }
+        });
+      }
+    });
+  }
+
+  private Page getPage(final int position) {
+    final int number = position / PAGE_SIZE;
+    focus = number;
+    Page page = pages.get(number);
+    if (page == null)
+      request(number);
+    request(number - 1);
+    request(number + 1);
+    return page;
+  }
+
+  /**
+   * Get symbol of stock at position
+   *
+   * @param position
+   * @return symbol or empty string if the page is still being read
+   */
+  public String getSymbol(final int position) {
+    Page page = getPage(position);
+    return page != null ? page.symbols[position % PAGE_SIZE] : "";
+  }
+
+  /**
+   * Get name of stock at position
+   *
+   * @param position
+   * @return name or empty string if the page is still being read
+   */
+  public String getName(final int position) {
+    Page page = getPage(position);
+    return page != null ? page.names[position % PAGE_SIZE] : "";
+  }
+
+  /**
+   * Get exchange of stock at position
+   *
+   * @param position
+   * @return exchange or empty string if the page is still being read
+   */
+  public String getExchange(final int position) {
+    Page page = getPage(position);
+    return page != null ? page.exchanges[position % PAGE_SIZE] : "";
+  }
+
+  /**
+   * Get stock at position
+   *
+   * @param position
+   * @return stock or null if the page is still being read
+   */
+  public Stock getStock(final int position) {
+    Page page = getPage(position);
+    if (page == null)
+      return null;
+    int index = position % PAGE_SIZE;
+    return new Stock(page.symbols[index], page.names[index]);
+  }
+}
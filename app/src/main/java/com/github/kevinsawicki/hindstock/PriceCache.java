@@ -0,0 +1,319 @@
+/*
+ * Copyright 2012 Kevin Sawicki <kevinsawicki@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.kevinsawicki.hindstock;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.util.Log;
+
+import com.github.kevinsawicki.wishlist.DatabaseHelper;
+
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Daily price bars cached in SQLite alongside the stocks database
+ * <p>
+ * Each fetched date range is recorded so later requests falling inside a
+ * cached range are served without a network request. Ranges ending on or
+ * after the day they were fetched may be missing the current day's bar and are
+ * only used for {@link #TTL} milliseconds. A fetched range is merged with the
+ * overlapping and adjacent ranges of the same symbol so requests spanning
+ * several fetches are still served from one range. Once more than the maximum
+ * number of bars are cached, the bars of the least recently used symbols are
+ * evicted.
+ */
+public class PriceCache extends DatabaseHelper implements BarCache {
+
+  private static final String TAG = "PriceCache";
+
+  private static final String NAME = "prices.db";
+
+  private static final int VERSION = 1;
+
+  /**
+   * Time in milliseconds that a cached range including the day it was fetched
+   * on remains valid
+   */
+  public static final long TTL = 15 * 60 * 1000;
+
+  /**
+   * Default maximum number of cached bars
+   */
+  public static final int DEFAULT_MAX_BARS = 100000;
+
+  private static PriceCache instance;
+
+  /**
+   * Get the cache shared across the process
+   *
+   * @param context
+   * @return cache
+   */
+  public static synchronized PriceCache getInstance(final Context context) {
+    if (instance == null)
+      instance = new PriceCache(context.getApplicationContext(),
+          DEFAULT_MAX_BARS);
+    return instance;
+  }
+
+  private final int maxBars;
+
+  private final AtomicInteger hits = new AtomicInteger();
+
+  private final AtomicInteger misses = new AtomicInteger();
+
+  private final AtomicInteger evictions = new AtomicInteger();
+
+  /**
+   * Number of cached bars, counted when the first bars are put and kept up to
+   * date afterwards
+   */
+  private long barCount = -1;
+
+  private PriceCache(final Context context, final int maxBars) {
+    super(context, NAME, null, VERSION);
+
+    this.maxBars = maxBars;
+  }
+
+  /**
+   * @return number of requests served from the cache
+   */
+  public int getHitCount() {
+    return hits.get();
+  }
+
+  /**
+   * @return number of requests not found in the cache
+   */
+  public int getMissCount() {
+    return misses.get();
+  }
+
+  /**
+   * @return number of symbols evicted from the cache
+   */
+  public int getEvictionCount() {
+    return evictions.get();
+  }
+
+  @Override
+  public void onCreate(SQLiteDatabase db) {
+    db.execSQL("CREATE TABLE bars (symbol TEXT, day INTEGER, open REAL, high REAL, low REAL, close REAL, volume INTEGER, PRIMARY KEY (symbol, day));");
+    db.execSQL("CREATE TABLE ranges (_id INTEGER PRIMARY KEY AUTOINCREMENT, symbol TEXT, first_day INTEGER, last_day INTEGER, fetched INTEGER, accessed INTEGER);");
+    db.execSQL("CREATE INDEX ranges_symbol ON ranges (symbol);");
+  }
+
+  @Override
+  public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+    db.execSQL("DROP TABLE IF EXISTS bars");
+    db.execSQL("DROP TABLE IF EXISTS ranges");
+    onCreate(db);
+  }
+
+  private void log() {
+    Log.d(TAG, MessageFormat.format("Hits: {0} Misses: {1} Evictions: {2}",
+        hits.get(), misses.get(), evictions.get()));
+  }
+
+  private boolean isCovered(final SQLiteDatabase db, final String symbol,
+      final int start, final int end) {
+    Cursor cursor = db.query("ranges", new String[] { "last_day", "fetched" },
+        "symbol = ? AND first_day <= ? AND last_day >= ?", new String[] {
+            symbol, Integer.toString(start), Integer.toString(end) }, null,
+        null, null);
+    if (cursor == null)
+      return false;
+
+    long now = System.currentTimeMillis();
+    try {
+      while (cursor.moveToNext()) {
+        long fetched = cursor.getLong(1);
+        if (cursor.getInt(0) < EpochDays.toDay(new Date(fetched))
+            || now - fetched < TTL)
+          return true;
+      }
+      return false;
+    } finally {
+      cursor.close();
+    }
+  }
+
+  @Override
+  public List<Bar> getBars(final String symbol, final int start, final int end) {
+    SQLiteDatabase db = getWritable();
+    if (db == null || !isCovered(db, symbol, start, end)) {
+      misses.incrementAndGet();
+      log();
+      return null;
+    }
+
+    SQLiteStatement touch = db
+        .compileStatement("UPDATE ranges SET accessed = ? WHERE symbol = ?;");
+    try {
+      touch.bindLong(1, System.currentTimeMillis());
+      touch.bindString(2, symbol);
+      touch.execute();
+    } finally {
+      touch.close();
+    }
+
+    Cursor cursor = db.query("bars", new String[] { "day", "open", "high",
+        "low", "close", "volume" }, "symbol = ? AND day >= ? AND day <= ?",
+        new String[] { symbol, Integer.toString(start), Integer.toString(end) },
+        null, null, "day DESC");
+    if (cursor == null) {
+      misses.incrementAndGet();
+      log();
+      return null;
+    }
+
+    List<Bar> bars = new ArrayList<Bar>(cursor.getCount());
+    try {
+      while (cursor.moveToNext())
+        bars.add(new Bar(cursor.getInt(0), cursor.getFloat(1), cursor
+            .getFloat(2), cursor.getFloat(3), cursor.getFloat(4), cursor
+            .getLong(5)));
+    } finally {
+      cursor.close();
+    }
+    hits.incrementAndGet();
+    log();
+    return bars;
+  }
+
+  /**
+   * Is the range complete, ending before the day it was fetched on?
+   *
+   * @param lastDay
+   * @param fetched
+   * @return true if complete, false if it may be missing the bar of the day it
+   *         was fetched on
+   */
+  private static boolean isComplete(final int lastDay, final long fetched) {
+    return lastDay < EpochDays.toDay(new Date(fetched));
+  }
+
+  @Override
+  public synchronized void putBars(final String symbol, final int start,
+      final int end, final List<Bar> bars) {
+    SQLiteDatabase db = getWritable();
+    if (db == null)
+      return;
+
+    if (barCount < 0)
+      barCount = DatabaseUtils.longForQuery(db, "SELECT COUNT(*) FROM bars;",
+          null);
+
+    long now = System.currentTimeMillis();
+    SQLiteStatement insertBar = db
+        .compileStatement("INSERT OR REPLACE INTO bars (symbol, day, open, high, low, close, volume) VALUES (?, ?, ?, ?, ?, ?, ?);");
+    SQLiteStatement insertRange = db
+        .compileStatement("INSERT INTO ranges (symbol, first_day, last_day, fetched, accessed) VALUES (?, ?, ?, ?, ?);");
+    long count = barCount;
+    db.beginTransaction();
+    try {
+      count -= DatabaseUtils.longForQuery(db,
+          "SELECT COUNT(*) FROM bars WHERE symbol = ? AND day >= ? AND day <= ?;",
+          new String[] { symbol, Integer.toString(start),
+              Integer.toString(end) });
+      for (Bar bar : bars) {
+        insertBar.bindString(1, symbol);
+        insertBar.bindLong(2, bar.day);
+        insertBar.bindDouble(3, bar.open);
+        insertBar.bindDouble(4, bar.high);
+        insertBar.bindDouble(5, bar.low);
+        insertBar.bindDouble(6, bar.close);
+        insertBar.bindLong(7, bar.volume);
+        insertBar.executeInsert();
+      }
+      count += bars.size();
+
+      int first = start;
+      int last = end;
+      Cursor cursor = db.query("ranges", new String[] { "_id", "first_day",
+          "last_day", "fetched" },
+          "symbol = ? AND first_day <= ? AND last_day >= ?", new String[] {
+              symbol, Integer.toString(end + 1), Integer.toString(start - 1) },
+          null, null, null);
+      try {
+        while (cursor.moveToNext()) {
+          int firstDay = cursor.getInt(1);
+          int lastDay = cursor.getInt(2);
+          long fetched = cursor.getLong(3);
+          // Only merge a range that may be missing bars when this fetch
+          // replaced every day it may be missing
+          if (!isComplete(lastDay, fetched)
+              && (end < lastDay || start > Math.max(firstDay,
+                  EpochDays.toDay(new Date(fetched)))))
+            continue;
+          first = Math.min(first, firstDay);
+          last = Math.max(last, lastDay);
+          db.delete("ranges", "_id = ?",
+              new String[] { Long.toString(cursor.getLong(0)) });
+        }
+      } finally {
+        cursor.close();
+      }
+
+      insertRange.bindString(1, symbol);
+      insertRange.bindLong(2, first);
+      insertRange.bindLong(3, last);
+      insertRange.bindLong(4, now);
+      insertRange.bindLong(5, now);
+      insertRange.executeInsert();
+
+      count = evict(db, symbol, count);
+      db.setTransactionSuccessful();
+      barCount = count;
+    } finally {
+      db.endTransaction();
+      insertBar.close();
+      insertRange.close();
+    }
+  }
+
+  private long evict(final SQLiteDatabase db, final String current, long count) {
+    while (count > maxBars) {
+      Cursor cursor = db
+          .rawQuery(
+              "SELECT symbol FROM ranges GROUP BY symbol ORDER BY MAX(accessed) LIMIT 1;",
+              null);
+      String symbol = null;
+      try {
+        if (cursor.moveToFirst())
+          symbol = cursor.getString(0);
+      } finally {
+        cursor.close();
+      }
+      if (symbol == null || symbol.equals(current))
+        return count;
+
+      String[] args = new String[] { symbol };
+      count -= db.delete("bars", "symbol = ?", args);
+      db.delete("ranges", "symbol = ?", args);
+      evictions.incrementAndGet();
+    }
+    return count;
+  }
+}
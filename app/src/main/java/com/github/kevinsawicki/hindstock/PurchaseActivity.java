@@ -16,6 +16,7 @@
 package com.github.kevinsawicki.hindstock;
 
 import static com.github.kevinsawicki.hindstock.IntentConstant.EXTRA_QUOTE;
+import static com.github.kevinsawicki.hindstock.IntentConstant.EXTRA_REQUEST;
 import static com.github.kevinsawicki.hindstock.IntentConstant.EXTRA_STOCK;
 import static java.text.DateFormat.SHORT;
 import static java.util.Calendar.DAY_OF_MONTH;
@@ -24,11 +25,11 @@ import static java.util.Calendar.YEAR;
 import android.app.DatePickerDialog;
 import android.app.DatePickerDialog.OnDateSetListener;
 import android.app.Dialog;
+import android.content.Context;
 import android.content.DialogInterface;
 import android.content.DialogInterface.OnCancelListener;
 import android.content.DialogInterface.OnDismissListener;
 import android.content.Intent;
-import android.database.Cursor;
 import android.os.Bundle;
 import android.text.TextUtils;
 import android.util.Log;
@@ -82,10 +83,18 @@ public class PurchaseActivity extends SherlockActivity {
 
   private Calendar dialogDate = new GregorianCalendar();
 
+  private final RetainedLoader loader = RetainedLoader.getInstance();
+
   private Quote quote;
 
   private boolean calculating;
 
+  private String request;
+
+  private RetainedLoader.Listener<SymbolIndex> stocksListener;
+
+  private RetainedLoader.Listener<Quote> quoteListener;
+
   private AutoCompleteTextView symbolText;
 
   private EditText amountText;
@@ -147,22 +156,74 @@ public class PurchaseActivity extends SherlockActivity {
     setupDateArea(finder);
     setupDoneListeners();
 
+    quoteListener = new RetainedLoader.Listener<Quote>() {
+
+      @Override
+      public void onLoaded(final Quote quote) {
+        loader.release(request);
+        request = null;
+        PurchaseActivity.this.quote = quote;
+        displayQuote(quote);
+      }
+
+      @Override
+      public void onFailed(final IOException cause) {
+        request = null;
+        showCalculating(false);
+        showQuoteException(cause);
+      }
+    };
+    if (savedInstanceState != null)
+      request = savedInstanceState.getString(EXTRA_REQUEST.toString());
+    if (request != null) {
+      showCalculating(true);
+      if (!loader.attach(request, quoteListener)) {
+        request = null;
+        showCalculating(false);
+      }
+    }
+
     loadStocks();
   }
 
   private void loadStocks() {
-    new StocksLoader(getApplicationContext()) {
+    stocksListener = new RetainedLoader.Listener<SymbolIndex>() {
 
       @Override
-      protected void onPostExecute(final Cursor cursor) {
-        if (cursor == null)
+      public void onLoaded(final SymbolIndex index) {
+        if (index == null) {
+          loader.release(StocksLoader.KEY);
           return;
+        }
 
-        StockListAdapter adapter = new StockListAdapter(context, cursor);
-        adapter.setFilterQueryProvider(new StocksFilter(context));
+        Context context = getApplicationContext();
+        StockListAdapter adapter = new StockListAdapter(context,
+            new SymbolCursor(index, index.getAll()));
+        StocksFilter filter = new StocksFilter(context);
+        adapter.setFilterQueryProvider(filter);
+        symbolText.addTextChangedListener(filter);
         symbolText.setAdapter(adapter);
-      };
-    }.execute();
+      }
+
+      @Override
+      public void onFailed(final IOException cause) {
+        // Loading the index doesn't throw I/O exceptions
+      }
+    };
+    loader.load(StocksLoader.KEY, new StocksLoader(getApplicationContext()),
+        stocksListener);
+  }
+
+  @Override
+  protected void onDestroy() {
+    super.onDestroy();
+
+    loader.detach(stocksListener);
+    loader.detach(quoteListener);
+    // Keep a running calculation only for the activity recreated after a
+    // configuration change
+    if (isFinishing() && request != null)
+      loader.release(request);
   }
 
   private void setupDoneListeners() {
@@ -209,6 +270,8 @@ public class PurchaseActivity extends SherlockActivity {
 
     if (quote != null)
       outState.putSerializable(EXTRA_QUOTE.toString(), quote);
+    if (request != null)
+      outState.putString(EXTRA_REQUEST.toString(), request);
   }
 
   @Override
@@ -265,13 +328,13 @@ public class PurchaseActivity extends SherlockActivity {
         .toString();
   }
 
-  private float getAmount() {
+  private long getAmount(final boolean dollars) {
     String text = amountText.getText().toString().trim();
     if (TextUtils.isEmpty(text))
       text = amountText.getHint().toString();
 
     try {
-      return Float.parseFloat(text);
+      return dollars ? Money.parseCents(text) : Money.parseMicros(text);
     } catch (NumberFormatException nfe) {
       Toaster.showLong(this, string.error_parsing_amount);
       return -1;
@@ -402,31 +465,21 @@ public class PurchaseActivity extends SherlockActivity {
     hideKeyboard();
 
     String symbol = getSymbol();
-    float dollars;
-    float shares;
+    long cents;
+    long shares;
     if (dollarsButton.isChecked()) {
-      dollars = getAmount();
+      cents = getAmount(true);
       shares = -1;
     } else {
-      dollars = -1;
-      shares = getAmount();
+      cents = -1;
+      shares = getAmount(false);
     }
 
     showCalculating(true);
-    new GainLossRequest(symbol, shares, dollars, buyDate, sellDate) {
-
-      @Override
-      protected void onSuccess(Quote quote) {
-        PurchaseActivity.this.quote = quote;
-        displayQuote(quote);
-      }
-
-      @Override
-      protected void onFailure(IOException cause) {
-        showCalculating(false);
-        showQuoteException(cause);
-      }
-    }.execute();
+    GainLossRequest gainLoss = new GainLossRequest(getApplicationContext(),
+        symbol, shares, cents, buyDate, sellDate);
+    request = gainLoss.getKey();
+    loader.load(request, gainLoss, quoteListener);
   }
 
   @Override
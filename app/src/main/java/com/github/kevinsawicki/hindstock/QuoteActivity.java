@@ -20,7 +20,6 @@ import static android.content.Intent.FLAG_ACTIVITY_SINGLE_TOP;
 import static com.github.kevinsawicki.hindstock.IntentConstant.EXTRA_QUOTE;
 import android.content.Intent;
 import android.os.Bundle;
-import android.util.FloatMath;
 import android.widget.TextView;
 
 import com.actionbarsherlock.app.SherlockActivity;
@@ -58,12 +57,13 @@ public class QuoteActivity extends SherlockActivity {
     TextView netLabel = finder.find(id.tv_net_label);
     TextView netText = finder.find(id.tv_net);
 
-    float netAmount = quote.getNet();
-    float dollars = FloatMath.floor(Math.abs(netAmount) + 0.5F);
-    int percentage = Math.round(quote.getRate());
+    long netCents = quote.getNetCents();
+    long cents = Math.abs(netCents);
+    long dollars = (cents + Money.CENTS / 2) / Money.CENTS;
+    long percentage = Math.round(quote.getRate());
     percentage = Math.abs(percentage);
     StringBuilder netTextValue = new StringBuilder();
-    if (netAmount >= 0) {
+    if (netCents >= 0) {
       netLabel.setTextColor(getColor(color.gain));
       netLabel.setText(getString(string.profit_label));
       netText.setTextColor(getColor(color.gain));
@@ -74,19 +74,16 @@ public class QuoteActivity extends SherlockActivity {
     }
     netTextValue.append('$').append(' ');
 
-    if (dollars < 1000000F) {
+    if (dollars < 1000000L) {
       netTextValue.append(numberFormat.format(dollars));
-    } else if (dollars < 1000000000F) {
-      dollars = dollars / 1000000F;
-      netTextValue.append(decimalFormat.format(dollars));
+    } else if (dollars < 1000000000L) {
+      netTextValue.append(decimalFormat.format(cents / 100000000D));
       netTextValue.append(' ').append('m');
-    } else if (dollars < 1000000000000F) {
-      dollars = dollars / 1000000000F;
-      netTextValue.append(decimalFormat.format(dollars));
+    } else if (dollars < 1000000000000L) {
+      netTextValue.append(decimalFormat.format(cents / 100000000000D));
       netTextValue.append(' ').append('b');
-    } else if (dollars < 1000000000000000F) {
-      dollars = dollars / 1000000000000F;
-      netTextValue.append(decimalFormat.format(dollars));
+    } else if (dollars < 1000000000000000L) {
+      netTextValue.append(decimalFormat.format(cents / 100000000000000D));
       netTextValue.append(' ').append('t');
     }
 
@@ -0,0 +1,301 @@
+/*
+ * Copyright 2012 Kevin Sawicki <kevinsawicki@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.kevinsawicki.hindstock;
+
+import android.os.AsyncTask;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.IOException;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Loader running background loads by key that outlive the activity that
+ * started them
+ * <p>
+ * A request for a key whose load is still running waits for that load instead
+ * of starting another one, and a request for a key whose result is retained
+ * receives it without loading again. Listeners are detached when their
+ * activity is destroyed so a load finishing afterwards is held until a new
+ * listener attaches, such as the activity recreated after a configuration
+ * change, instead of being delivered to a dead activity and discarded.
+ * <p>
+ * All methods must be called from the UI thread.
+ */
+public class RetainedLoader {
+
+  private static final String TAG = "RetainedLoader";
+
+  /**
+   * Work run in the background
+   *
+   * @param <V>
+   */
+  public interface Load<V> {
+
+    /**
+     * Load value
+     *
+     * @return value
+     * @throws IOException
+     */
+    V load() throws IOException;
+  }
+
+  /**
+   * Receiver of a load's result on the UI thread
+   *
+   * @param <V>
+   */
+  public interface Listener<V> {
+
+    /**
+     * Called when the value has loaded
+     *
+     * @param value
+     */
+    void onLoaded(V value);
+
+    /**
+     * Called when the load failed
+     *
+     * @param cause
+     */
+    void onFailed(IOException cause);
+  }
+
+  private class Entry<V> extends AsyncTask<Void, Void, V> {
+
+    final String key;
+
+    final Load<V> load;
+
+    final List<Listener<V>> listeners = new ArrayList<Listener<V>>(1);
+
+    boolean done;
+
+    boolean unclaimed;
+
+    int joins;
+
+    V value;
+
+    IOException exception;
+
+    long time;
+
+    Entry(final String key, final Load<V> load) {
+      this.key = key;
+      this.load = load;
+    }
+
+    @Override
+    protected V doInBackground(Void... params) {
+      long start = SystemClock.uptimeMillis();
+      try {
+        return load.load();
+      } catch (IOException e) {
+        exception = e;
+        return null;
+      } finally {
+        time = SystemClock.uptimeMillis() - start;
+      }
+    }
+
+    @Override
+    protected void onPostExecute(final V result) {
+      done = true;
+      value = result;
+      savedTime += time * joins;
+      if (!listeners.isEmpty())
+        deliver(this);
+      else
+        unclaimed = true;
+      log();
+    }
+  }
+
+  private static RetainedLoader instance;
+
+  /**
+   * Get the loader shared across the process
+   *
+   * @return loader
+   */
+  public static RetainedLoader getInstance() {
+    if (instance == null)
+      instance = new RetainedLoader();
+    return instance;
+  }
+
+  private final Map<String, Entry<?>> entries = new HashMap<String, Entry<?>>();
+
+  private int started;
+
+  private int joined;
+
+  private int reused;
+
+  private int held;
+
+  private long savedTime;
+
+  private RetainedLoader() {
+  }
+
+  /**
+   * @return number of loads run
+   */
+  public int getStartedCount() {
+    return started;
+  }
+
+  /**
+   * @return number of requests that waited for a load already running
+   */
+  public int getJoinedCount() {
+    return joined;
+  }
+
+  /**
+   * @return number of requests served from a retained result
+   */
+  public int getReusedCount() {
+    return reused;
+  }
+
+  /**
+   * @return number of results that finished with no listener attached and
+   *         were held for the next listener
+   */
+  public int getHeldCount() {
+    return held;
+  }
+
+  /**
+   * Get time the joined and reused requests would have spent loading again
+   *
+   * @return time in milliseconds
+   */
+  public long getSavedTime() {
+    return savedTime;
+  }
+
+  private void log() {
+    Log.d(TAG, MessageFormat.format(
+        "Started: {0} Joined: {1} Reused: {2} Held: {3} Saved: {4}ms",
+        started, joined, reused, held, savedTime));
+  }
+
+  private <V> void deliver(final Entry<V> entry) {
+    List<Listener<V>> listeners = new ArrayList<Listener<V>>(entry.listeners);
+    if (entry.exception != null) {
+      // Failures are delivered once so the next request tries again
+      entries.remove(entry.key);
+      entry.listeners.clear();
+      for (Listener<V> listener : listeners)
+        listener.onFailed(entry.exception);
+    } else
+      for (Listener<V> listener : listeners)
+        listener.onLoaded(entry.value);
+  }
+
+  /**
+   * Load value for key, reusing the retained or running load of the key if
+   * one exists
+   *
+   * @param key
+   * @param load
+   * @param listener
+   */
+  @SuppressWarnings("unchecked")
+  public <V> void load(final String key, final Load<V> load,
+      final Listener<V> listener) {
+    Entry<V> entry = (Entry<V>) entries.get(key);
+    if (entry == null) {
+      entry = new Entry<V>(key, load);
+      entries.put(key, entry);
+      entry.listeners.add(listener);
+      started++;
+      entry.execute();
+      log();
+    } else
+      attach(entry, listener);
+  }
+
+  /**
+   * Attach listener to the retained or running load of the key
+   *
+   * @param key
+   * @param listener
+   * @return true if attached, false if no load exists for key
+   */
+  @SuppressWarnings("unchecked")
+  public <V> boolean attach(final String key, final Listener<V> listener) {
+    Entry<V> entry = (Entry<V>) entries.get(key);
+    if (entry == null)
+      return false;
+
+    attach(entry, listener);
+    return true;
+  }
+
+  private <V> void attach(final Entry<V> entry, final Listener<V> listener) {
+    if (!entry.listeners.contains(listener))
+      entry.listeners.add(listener);
+    if (entry.done) {
+      reused++;
+      savedTime += entry.time;
+      if (entry.unclaimed) {
+        entry.unclaimed = false;
+        held++;
+      }
+      deliver(entry);
+    } else {
+      entry.joins++;
+      joined++;
+    }
+    log();
+  }
+
+  /**
+   * Detach listener from all loads, this should be called when the activity
+   * the listener belongs to is destroyed
+   *
+   * @param listener
+   */
+  public void detach(final Listener<?> listener) {
+    for (Entry<?> entry : entries.values())
+      entry.listeners.remove(listener);
+  }
+
+  /**
+   * Release the retained result of the key
+   * <p>
+   * A load still running continues for any other listeners attached to it.
+   *
+   * @param key
+   */
+  public void release(final String key) {
+    Entry<?> entry = entries.get(key);
+    if (entry != null && (entry.done || entry.listeners.isEmpty()))
+      entries.remove(key);
+  }
+}
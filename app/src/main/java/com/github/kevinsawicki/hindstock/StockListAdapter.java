@@ -18,8 +18,6 @@ package com.github.kevinsawicki.hindstock;
 import android.content.Context;
 import android.database.Cursor;
 import android.view.View;
-import android.widget.AlphabetIndexer;
-import android.widget.SectionIndexer;
 
 import com.github.kevinsawicki.hindstock.R.id;
 import com.github.kevinsawicki.hindstock.R.layout;
@@ -28,10 +26,7 @@ import com.github.kevinsawicki.wishlist.SingleTypeCursorAdapter;
 /**
  * Adapter to display a list of stocks
  */
-public class StockListAdapter extends SingleTypeCursorAdapter implements
-    SectionIndexer {
-
-  private final SectionIndexer indexer;
+public class StockListAdapter extends SingleTypeCursorAdapter {
 
   /**
    * Create adapter for stocks
@@ -41,8 +36,6 @@ public class StockListAdapter extends SingleTypeCursorAdapter implements
    */
   public StockListAdapter(Context context, Cursor cursor) {
     super(context, cursor, 0, layout.stock);
-
-    indexer = new AlphabetIndexer(cursor, 1, "ABCDEFGHIJKLMNOPQRSTUVWXYZ");
   }
 
   /**
@@ -56,21 +49,6 @@ public class StockListAdapter extends SingleTypeCursorAdapter implements
     return new Stock(cursor.getString(1), cursor.getString(2));
   }
 
-  @Override
-  public Object[] getSections() {
-    return indexer.getSections();
-  }
-
-  @Override
-  public int getPositionForSection(int section) {
-    return indexer.getPositionForSection(section);
-  }
-
-  @Override
-  public int getSectionForPosition(int position) {
-    return indexer.getSectionForPosition(position);
-  }
-
   @Override
   protected int[] getChildViewIds() {
     return new int[] { id.tv_symbol, id.tv_name, id.tv_exchange };
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2012 Kevin Sawicki <kevinsawicki@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.kevinsawicki.hindstock;
+
+import android.content.Context;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.BaseAdapter;
+import android.widget.SectionIndexer;
+import android.widget.TextView;
+
+import com.github.kevinsawicki.hindstock.R.id;
+import com.github.kevinsawicki.hindstock.R.layout;
+
+/**
+ * Adapter to display all stocks from {@link PagedStocks} with fast scroll
+ * sections by the first letter of the symbol
+ * <p>
+ * Rows on a page still being read are shown empty and filled in once the page
+ * arrives.
+ */
+public class StockPageAdapter extends BaseAdapter implements SectionIndexer,
+    PagedStocks.Listener {
+
+  private static class ViewHolder {
+
+    final TextView symbol;
+
+    final TextView name;
+
+    final TextView exchange;
+
+    ViewHolder(final View view) {
+      symbol = (TextView) view.findViewById(id.tv_symbol);
+      name = (TextView) view.findViewById(id.tv_name);
+      exchange = (TextView) view.findViewById(id.tv_exchange);
+    }
+  }
+
+  private final LayoutInflater inflater;
+
+  private final PagedStocks stocks;
+
+  private final SectionIndex sections;
+
+  /**
+   * Create adapter for stocks
+   *
+   * @param context
+   * @param stocks
+   */
+  public StockPageAdapter(final Context context, final PagedStocks stocks) {
+    inflater = LayoutInflater.from(context);
+    this.stocks = stocks.setListener(this);
+    sections = stocks.getSections();
+  }
+
+  @Override
+  public void onPageLoaded(final int page) {
+    notifyDataSetChanged();
+  }
+
+  /**
+   * Get stock at position
+   *
+   * @param position
+   * @return stock or null if its page is still being read
+   */
+  public Stock getStock(final int position) {
+    return stocks.getStock(position);
+  }
+
+  @Override
+  public int getCount() {
+    return stocks.getCount();
+  }
+
+  @Override
+  public Stock getItem(final int position) {
+    return stocks.getStock(position);
+  }
+
+  @Override
+  public long getItemId(final int position) {
+    // Stocks never move while the list is shown so the position is an id
+    // that stays the same whether or not the row's page has been read
+    return position;
+  }
+
+  @Override
+  public boolean hasStableIds() {
+    return true;
+  }
+
+  @Override
+  public View getView(final int position, View convertView,
+      final ViewGroup parent) {
+    ViewHolder holder;
+    if (convertView == null) {
+      convertView = inflater.inflate(layout.stock, parent, false);
+      holder = new ViewHolder(convertView);
+      convertView.setTag(holder);
+    } else
+      holder = (ViewHolder) convertView.getTag();
+
+    holder.symbol.setText(stocks.getSymbol(position));
+    holder.name.setText(stocks.getName(position));
+    holder.exchange.setText(stocks.getExchange(position));
+    return convertView;
+  }
+
+  @Override
+  public Object[] getSections() {
+    return sections.getSections();
+  }
+
+  @Override
+  public int getPositionForSection(final int section) {
+    return sections.getPositionForSection(section);
+  }
+
+  @Override
+  public int getSectionForPosition(final int position) {
+    return sections.getSectionForPosition(position);
+  }
+}
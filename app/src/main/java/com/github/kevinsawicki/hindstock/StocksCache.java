@@ -15,119 +15,633 @@
  */
 package com.github.kevinsawicki.hindstock;
 
-import android.content.ContentValues;
+import static android.database.sqlite.SQLiteDatabase.OPEN_READONLY;
+import static android.os.Build.VERSION.SDK_INT;
+import static android.os.Build.VERSION_CODES.HONEYCOMB;
 import android.content.Context;
 import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.SQLException;
 import android.database.sqlite.SQLiteDatabase;
-import android.database.sqlite.SQLiteQueryBuilder;
+import android.database.sqlite.SQLiteDoneException;
+import android.database.sqlite.SQLiteStatement;
+import android.os.SystemClock;
 import android.util.Log;
 
 import com.github.kevinsawicki.wishlist.DatabaseHelper;
 
-import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.text.MessageFormat;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
- * Stocks cached in SQLite populated initially from a file
+ * Stocks cached in SQLite populated initially from a prebuilt database or a
+ * file
+ * <p>
+ * A single instance is shared across the process through
+ * {@link #getInstance(Context)} so the database connection stays open once
+ * it has been opened.
  */
 public class StocksCache extends DatabaseHelper {
 
   private static final String TAG = "StocksLoader";
 
+  private static final String NAME = "stocks.db";
+
+  /**
+   * Binary symbol list asset imported when the prebuilt database can't be used
+   */
+  private static final String SYMBOLS = "stocks.bin";
+
+  /**
+   * Symbol list delta asset applied when upgrading from one symbol list
+   * version to the next
+   */
+  private static final String DELTA = "stocks-{0}-{1}.delta";
+
+  /**
+   * Version of schema, must match the version of the prebuilt database written
+   * by the loader's DatabaseLoader
+   */
+  private static final int VERSION = 10;
+
+  /**
+   * Version of the symbol list in the {@link #SYMBOLS} asset, must match the
+   * list version written by the loader's DatabaseLoader and be bumped whenever
+   * the symbol list changes
+   */
+  private static final int LIST_VERSION = 1;
+
+  /**
+   * Version of the symbol list held by databases created before the list
+   * version was recorded, the only list shipped until then
+   */
+  private static final int FIRST_LIST_VERSION = 1;
+
+  private static final String COLUMNS = "stocks._id, stocks.symbol, stocks.name, stocks.exchange";
+
+  private static final String QUERY_PAGE = "SELECT " + COLUMNS
+      + " FROM stocks ORDER BY symbol LIMIT ? OFFSET ?";
+
+  private static final String QUERY_SECTIONS = "SELECT section, count FROM sections ORDER BY _id";
+
+  /**
+   * Create the index used to look up and page through stocks by symbol
+   *
+   * @param db
+   */
+  private static void createSymbolIndex(final SQLiteDatabase db) {
+    db.execSQL("CREATE INDEX IF NOT EXISTS stocks_symbol ON stocks (symbol);");
+  }
+
+  /**
+   * Create the table of the sections of the stocks ordered by symbol
+   *
+   * @param db
+   */
+  private static void createSectionTable(final SQLiteDatabase db) {
+    db.execSQL("CREATE TABLE sections (_id INTEGER PRIMARY KEY, section TEXT, count INTEGER);");
+  }
+
+  /**
+   * Populate the section table with the number of stocks starting with each
+   * character, this is run whenever the stocks table changes so the section
+   * index is read from a few rows instead of grouping every stock
+   *
+   * @param db
+   */
+  private static void populateSectionTable(final SQLiteDatabase db) {
+    db.execSQL("DELETE FROM sections;");
+    db.execSQL("INSERT INTO sections (section, count) SELECT substr(symbol, 1, 1), COUNT(*) FROM stocks GROUP BY 1 ORDER BY 1;");
+  }
+
+  /**
+   * Create the table recording the version of the symbol list in the stocks
+   * table
+   *
+   * @param db
+   * @param version
+   */
+  private static void createListTable(final SQLiteDatabase db,
+      final int version) {
+    db.execSQL("CREATE TABLE symbol_list (version INTEGER);");
+    db.execSQL("INSERT INTO symbol_list (version) VALUES (" + version + ");");
+  }
+
+  private static StocksCache instance;
+
+  /**
+   * Get the cache shared across the process
+   *
+   * @param context
+   * @return cache
+   */
+  public static synchronized StocksCache getInstance(final Context context) {
+    if (instance == null)
+      instance = new StocksCache(context.getApplicationContext());
+    return instance;
+  }
+
   private final Context context;
 
+  private final AtomicInteger opens = new AtomicInteger();
+
+  private final AtomicInteger closes = new AtomicInteger();
+
+  private final AtomicInteger connectionRequests = new AtomicInteger();
+
+  private final AtomicLong connectionWait = new AtomicLong();
+
+  private final Object indexLock = new Object();
+
+  private volatile SymbolIndex index;
+
+  private boolean installed;
+
   /**
    * @param context
    */
-  public StocksCache(final Context context) {
-    super(context, "stocks.db", null, 6);
+  private StocksCache(final Context context) {
+    super(context, NAME, null, VERSION);
 
     this.context = context;
   }
 
+  /**
+   * @return number of times the database has been opened
+   */
+  public int getOpenCount() {
+    return opens.get();
+  }
+
+  /**
+   * @return number of times the database has been closed
+   */
+  public int getCloseCount() {
+    return closes.get();
+  }
+
+  /**
+   * @return number of times a database connection has been requested
+   */
+  public int getConnectionRequestCount() {
+    return connectionRequests.get();
+  }
+
+  /**
+   * Get total time spent waiting for a database connection including waiting
+   * for the helper lock, copying the prebuilt database, and opening it
+   *
+   * @return time in milliseconds
+   */
+  public long getConnectionWaitTime() {
+    return connectionWait.get();
+  }
+
+  /**
+   * Copy the prebuilt database from the assets if no database exists yet
+   * <p>
+   * The schema and indexes in the prebuilt database are already populated so
+   * {@link #onCreate(SQLiteDatabase)} is only used when the copy fails.
+   */
+  private void install() {
+    if (installed)
+      return;
+    installed = true;
+
+    File database = context.getDatabasePath(NAME);
+    if (database.exists())
+      return;
+
+    File directory = database.getParentFile();
+    if (directory != null && !directory.exists())
+      directory.mkdirs();
+
+    File temp = new File(directory, NAME + ".tmp");
+    InputStream input = null;
+    OutputStream output = null;
+    long time = System.currentTimeMillis();
+    long size = 0;
+    try {
+      input = context.getAssets().open(NAME);
+      output = new FileOutputStream(temp);
+      byte[] buffer = new byte[8192 * 2];
+      int read;
+      while ((read = input.read(buffer)) != -1) {
+        output.write(buffer, 0, read);
+        size += read;
+      }
+      output.close();
+      output = null;
+      if (!temp.renameTo(database))
+        throw new IOException("Renaming " + temp + " to " + database
+            + " failed");
+      if (!verify(database))
+        throw new IOException("Verifying " + database + " failed");
+      time = System.currentTimeMillis() - time;
+      Log.d(TAG, MessageFormat.format(
+          "Stock database copied: {0} bytes Time: {1}ms", size, time));
+    } catch (IOException e) {
+      Log.d(TAG, "Copying stock database failed", e);
+      temp.delete();
+      database.delete();
+    } finally {
+      if (input != null)
+        try {
+          input.close();
+        } catch (IOException ignored) {
+          // Ignored
+        }
+      if (output != null)
+        try {
+          output.close();
+        } catch (IOException ignored) {
+          // Ignored
+        }
+    }
+  }
+
+  /**
+   * Verify the stocks table in the given database can be queried
+   *
+   * @param database
+   * @return true if valid, false otherwise
+   */
+  private boolean verify(final File database) {
+    SQLiteDatabase db = null;
+    try {
+      db = SQLiteDatabase.openDatabase(database.getPath(), null, OPEN_READONLY);
+      DatabaseUtils.longForQuery(db,
+          "SELECT COUNT(*) FROM stocks;", null);
+      return true;
+    } catch (SQLException e) {
+      Log.d(TAG, "Querying stock database failed", e);
+      return false;
+    } finally {
+      if (db != null)
+        db.close();
+    }
+  }
+
+  private SQLiteDatabase getDatabase(final boolean writable) {
+    connectionRequests.incrementAndGet();
+    long time = SystemClock.uptimeMillis();
+    try {
+      synchronized (this) {
+        install();
+        if (writable)
+          return super.getWritableDatabase();
+        else
+          return super.getReadableDatabase();
+      }
+    } finally {
+      connectionWait.addAndGet(SystemClock.uptimeMillis() - time);
+    }
+  }
+
+  @Override
+  public SQLiteDatabase getReadableDatabase() {
+    return getDatabase(false);
+  }
+
+  @Override
+  public SQLiteDatabase getWritableDatabase() {
+    return getDatabase(true);
+  }
+
+  @Override
+  public void onOpen(SQLiteDatabase db) {
+    super.onOpen(db);
+
+    // Write-ahead logging lets reads continue while an upgrade is written
+    if (SDK_INT >= HONEYCOMB && !db.isReadOnly())
+      db.enableWriteAheadLogging();
+
+    Log.d(TAG, MessageFormat.format("Stock database opened: {0}",
+        opens.incrementAndGet()));
+  }
+
+  @Override
+  public synchronized void close() {
+    super.close();
+
+    Log.d(TAG, MessageFormat.format("Stock database closed: {0}",
+        closes.incrementAndGet()));
+  }
+
   @Override
   public void onCreate(SQLiteDatabase db) {
     db.execSQL("CREATE TABLE stocks (_id INTEGER PRIMARY KEY AUTOINCREMENT, symbol TEXT, name TEXT, exchange TEXT);");
-    db.execSQL("CREATE VIRTUAL TABLE search USING fts3(symbol TEXT PRIMARY KEY, name TEXT);");
+    createSectionTable(db);
+    createListTable(db, LIST_VERSION);
 
-    BufferedReader reader = null;
+    InputStream input = null;
     long time = System.currentTimeMillis();
     int count = 0;
-    ContentValues values = new ContentValues(3);
+    SQLiteStatement insert = db
+        .compileStatement("INSERT INTO stocks (symbol, name, exchange) VALUES (?, ?, ?);");
     db.beginTransaction();
     try {
-      reader = new BufferedReader(new InputStreamReader(context.getAssets()
-          .open("stocks.txt")), 8192 * 2);
-      String symbol;
-      while ((symbol = reader.readLine()) != null) {
-        String name = reader.readLine();
-        String exchange = reader.readLine();
-
-        values.clear();
-        values.put("symbol", symbol);
-        values.put("name", name);
-        db.insert("search", null, values);
-        values.put("exchange", exchange);
-        db.insert("stocks", null, values);
-        count++;
+      input = context.getAssets().open(SYMBOLS);
+      SymbolFile symbols = SymbolFile.read(input);
+      final int size = symbols.size();
+      for (; count < size; count++) {
+        insert.bindString(1, symbols.getSymbol(count));
+        insert.bindString(2, symbols.getName(count));
+        insert.bindString(3, symbols.getExchange(count));
+        insert.executeInsert();
       }
+
+      // Build the indexes in one pass once all rows are present
+      createSymbolIndex(db);
+      populateSectionTable(db);
       db.setTransactionSuccessful();
     } catch (IOException e) {
       Log.d(TAG, "Loading stocks failed", e);
     } finally {
       db.endTransaction();
+      insert.close();
       time = System.currentTimeMillis() - time;
-      Log.d(TAG,
-          MessageFormat.format("Stock loaded: {0} Time: {1}ms", count, time));
-      if (reader != null)
+      long rate = time > 0 ? count * 1000L / time : count;
+      Log.d(TAG, MessageFormat.format(
+          "Stock loaded: {0} Time: {1}ms Rate: {2} rows/s", count, time, rate));
+      if (input != null)
         try {
-          reader.close();
+          input.close();
         } catch (IOException ignored) {
           // Ignored
         }
     }
   }
 
+  /**
+   * Open the delta asset between two symbol list versions
+   *
+   * @param from
+   * @param to
+   * @return delta or null if no asset exists
+   */
+  private SymbolDelta openDelta(final int from, final int to) {
+    InputStream input = null;
+    try {
+      try {
+        input = context.getAssets().open(
+            MessageFormat.format(DELTA, Integer.toString(from),
+                Integer.toString(to)));
+      } catch (FileNotFoundException e) {
+        return null;
+      }
+      SymbolDelta delta = SymbolDelta.read(input);
+      if (delta.fromVersion != from || delta.toVersion != to)
+        throw new IOException("Delta versions don't match: " + delta);
+      return delta;
+    } catch (IOException e) {
+      Log.d(TAG, "Opening stock delta failed", e);
+      return null;
+    } finally {
+      if (input != null)
+        try {
+          input.close();
+        } catch (IOException ignored) {
+          // Ignored
+        }
+    }
+  }
+
+  private static long getId(final SQLiteStatement query, final String symbol) {
+    query.bindString(1, symbol);
+    try {
+      return query.simpleQueryForLong();
+    } catch (SQLiteDoneException e) {
+      return -1;
+    }
+  }
+
+  /**
+   * Apply delta to the stocks table
+   * <p>
+   * Updated stocks keep their row id so anything referencing a stock by id
+   * remains valid across the upgrade.
+   *
+   * @param db
+   * @param delta
+   */
+  private static void applyDelta(final SQLiteDatabase db,
+      final SymbolDelta delta) {
+    long time = System.currentTimeMillis();
+    SQLiteStatement query = db
+        .compileStatement("SELECT _id FROM stocks WHERE symbol = ?;");
+    SQLiteStatement deleteStock = db
+        .compileStatement("DELETE FROM stocks WHERE _id = ?;");
+    SQLiteStatement updateStock = db
+        .compileStatement("UPDATE stocks SET symbol = ?, name = ?, exchange = ? WHERE _id = ?;");
+    SQLiteStatement insertStock = db
+        .compileStatement("INSERT INTO stocks (symbol, name, exchange) VALUES (?, ?, ?);");
+    try {
+      for (String symbol : delta.removed) {
+        long id = getId(query, symbol);
+        if (id == -1)
+          continue;
+        deleteStock.bindLong(1, id);
+        deleteStock.execute();
+      }
+
+      for (SymbolDelta.Entry entry : delta.updated) {
+        long id = getId(query, entry.previous);
+        if (id == -1)
+          continue;
+        updateStock.bindString(1, entry.symbol);
+        updateStock.bindString(2, entry.name);
+        updateStock.bindString(3, entry.exchange);
+        updateStock.bindLong(4, id);
+        updateStock.execute();
+      }
+
+      for (SymbolDelta.Entry entry : delta.added) {
+        insertStock.bindString(1, entry.symbol);
+        insertStock.bindString(2, entry.name);
+        insertStock.bindString(3, entry.exchange);
+        insertStock.executeInsert();
+      }
+    } finally {
+      query.close();
+      deleteStock.close();
+      updateStock.close();
+      insertStock.close();
+    }
+    Log.d(TAG, MessageFormat.format("Stock delta applied: {0} Time: {1}ms",
+        delta, System.currentTimeMillis() - time));
+  }
+
+  /**
+   * Open the chain of delta assets from one symbol list version to another
+   *
+   * @param from
+   * @param to
+   * @return deltas or null if any delta in the chain is missing
+   */
+  private SymbolDelta[] openDeltas(final int from, final int to) {
+    if (to < from)
+      return null;
+
+    SymbolDelta[] deltas = new SymbolDelta[to - from];
+    for (int i = 0; i < deltas.length; i++) {
+      deltas[i] = openDelta(from + i, from + i + 1);
+      if (deltas[i] == null)
+        return null;
+    }
+    return deltas;
+  }
+
+  /**
+   * Upgrade the schema and then the stocks in place by applying the delta
+   * assets between the symbol list version in the database and the bundled
+   * one, falling back to importing the full symbol list when a delta is
+   * missing
+   * <p>
+   * The symbol list version is tracked separately from the schema version so
+   * schema changes don't read as an unchanged list and a changed list with no
+   * delta is never left stale. The helper runs this inside a single
+   * transaction so a failed upgrade leaves the previous version untouched.
+   */
   @Override
   public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+    if (oldVersion >= 6) {
+      int listVersion = oldVersion < 10 ? FIRST_LIST_VERSION
+          : (int) DatabaseUtils.longForQuery(db,
+              "SELECT version FROM symbol_list;", null);
+      SymbolDelta[] deltas = openDeltas(listVersion, LIST_VERSION);
+      if (deltas != null) {
+        // The full-text search table was replaced by the in-memory SymbolIndex
+        if (oldVersion < 7)
+          db.execSQL("DROP TABLE IF EXISTS search");
+        if (oldVersion < 8)
+          createSymbolIndex(db);
+        boolean changed = deltas.length > 0;
+        if (oldVersion < 9) {
+          createSectionTable(db);
+          changed = true;
+        }
+        if (oldVersion < 10)
+          createListTable(db, listVersion);
+
+        for (SymbolDelta delta : deltas)
+          applyDelta(db, delta);
+        if (deltas.length > 0)
+          db.execSQL("UPDATE symbol_list SET version = " + LIST_VERSION + ";");
+        if (changed)
+          populateSectionTable(db);
+        return;
+      }
+      Log.d(TAG, MessageFormat.format(
+          "No stock deltas from list version {0} to {1}", listVersion,
+          LIST_VERSION));
+    }
+
     db.execSQL("DROP TABLE IF EXISTS stocks");
     db.execSQL("DROP TABLE IF EXISTS search");
+    db.execSQL("DROP TABLE IF EXISTS sections");
+    db.execSQL("DROP TABLE IF EXISTS symbol_list");
     onCreate(db);
   }
 
   /**
-   * Get cursor over all stocks
+   * Get cursor over a page of stocks ordered by symbol
    *
+   * @param offset
+   * @param limit
    * @return cursor
    */
-  public Cursor getStocks() {
+  public Cursor getStocks(final int offset, final int limit) {
     SQLiteDatabase db = getReadable();
     if (db == null)
       return null;
 
-    SQLiteQueryBuilder builder = new SQLiteQueryBuilder();
-    builder.setTables("stocks");
-    return builder.query(db, new String[] { "stocks._id", "stocks.symbol",
-        "stocks.name", "stocks.exchange" }, null, null, null, null, null);
+    return db.rawQuery(QUERY_PAGE, new String[] { Integer.toString(limit),
+        Integer.toString(offset) });
   }
 
   /**
-   * Get stocks filtered to given query
+   * Get index of the stocks ordered by symbol sectioned by the first
+   * character of the symbol, read from the section table computed when the
+   * stocks were imported
    *
-   * @param query
-   * @return cursor
+   * @return index or null if the database could not be opened
    */
-  public Cursor getFilteredStocks(final String query) {
+  public SectionIndex getSections() {
     SQLiteDatabase db = getReadable();
     if (db == null)
       return null;
 
-    SQLiteQueryBuilder builder = new SQLiteQueryBuilder();
-    builder.setTables("stocks JOIN search ON (stocks.symbol = search.symbol)");
-    return builder.query(db, new String[] { "stocks._id", "stocks.symbol",
-        "stocks.name", "stocks.exchange" }, "search MATCH ?",
-        new String[] { "name:*" + query + '*' }, null, null, null);
+    Cursor cursor = db.rawQuery(QUERY_SECTIONS, null);
+    if (cursor == null)
+      return null;
+    try {
+      final int count = cursor.getCount();
+      String[] sections = new String[count];
+      int[] counts = new int[count];
+      for (int i = 0; i < count && cursor.moveToNext(); i++) {
+        sections[i] = cursor.getString(0);
+        counts[i] = cursor.getInt(1);
+      }
+      return new SectionIndex(sections, counts);
+    } finally {
+      cursor.close();
+    }
+  }
+
+  /**
+   * Get in-memory index of all stocks
+   * <p>
+   * The index is built from the database on the first call and shared
+   * afterwards so this method should not be called from the UI thread.
+   *
+   * @return index or null if the database could not be opened
+   */
+  public SymbolIndex getIndex() {
+    SymbolIndex loaded = index;
+    if (loaded != null)
+      return loaded;
+
+    synchronized (indexLock) {
+      if (index != null)
+        return index;
+
+      long time = System.currentTimeMillis();
+      SQLiteDatabase db = getReadable();
+      if (db == null)
+        return null;
+
+      Cursor cursor = db.query("stocks", new String[] { "_id", "symbol",
+          "name", "exchange" }, null, null, null, null, "symbol");
+      if (cursor == null)
+        return null;
+      try {
+        final int count = cursor.getCount();
+        long[] ids = new long[count];
+        String[] symbols = new String[count];
+        String[] names = new String[count];
+        String[] exchanges = new String[count];
+        for (int i = 0; i < count && cursor.moveToNext(); i++) {
+          ids[i] = cursor.getLong(0);
+          symbols[i] = cursor.getString(1);
+          names[i] = cursor.getString(2);
+          exchanges[i] = cursor.getString(3);
+        }
+        index = new SymbolIndex(ids, symbols, names, exchanges);
+      } finally {
+        cursor.close();
+      }
+      time = System.currentTimeMillis() - time;
+      Log.d(TAG, MessageFormat.format("Stock index built: {0} Time: {1}ms",
+          index.size(), time));
+      return index;
+    }
   }
 }
@@ -17,30 +17,129 @@ package com.github.kevinsawicki.hindstock;
 
 import android.content.Context;
 import android.database.Cursor;
+import android.os.SystemClock;
+import android.text.Editable;
 import android.text.TextUtils;
+import android.text.TextWatcher;
+import android.util.Log;
 import android.widget.FilterQueryProvider;
 
+import java.text.MessageFormat;
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  * Filter query provider over all stocks
+ * <p>
+ * Register this filter as a {@link TextWatcher} on the view being filtered so
+ * queries are delayed until typing pauses and queries for text that has since
+ * changed are skipped, both before searching the {@link SymbolIndex} and before
+ * the search's results replace the current cursor.
  */
-public class StocksFilter implements FilterQueryProvider {
+public class StocksFilter implements FilterQueryProvider, TextWatcher {
+
+  private static final String TAG = "StocksFilter";
+
+  /**
+   * Default time in milliseconds to wait after the last text change before
+   * running a query
+   */
+  public static final long DEFAULT_DELAY = 150;
 
   private final StocksCache cache;
 
+  private final long delay;
+
+  private final AtomicInteger skipped = new AtomicInteger();
+
+  private volatile String latest;
+
+  private volatile long changed;
+
   /**
    * Create filter query provider
    *
    * @param context
    */
   public StocksFilter(final Context context) {
-    cache = new StocksCache(context);
+    this(context, DEFAULT_DELAY);
+  }
+
+  /**
+   * Create filter query provider that waits the given delay after the last
+   * text change before running a query
+   *
+   * @param context
+   * @param delay
+   */
+  public StocksFilter(final Context context, final long delay) {
+    cache = StocksCache.getInstance(context);
+    this.delay = delay;
+  }
+
+  /**
+   * @return number of queries skipped because newer text arrived
+   */
+  public int getSkippedCount() {
+    return skipped.get();
+  }
+
+  private boolean isStale(final String query) {
+    String current = latest;
+    return current != null && !current.equals(query);
+  }
+
+  private Cursor skip() {
+    Log.d(TAG, MessageFormat.format("Queries skipped: {0}",
+        skipped.incrementAndGet()));
+    // A null cursor leaves the adapter's current cursor in place
+    return null;
   }
 
   @Override
   public Cursor runQuery(final CharSequence constraint) {
-    if (!TextUtils.isEmpty(constraint))
-      return cache.getFilteredStocks(constraint.toString());
+    final String query = constraint != null ? constraint.toString() : "";
+
+    if (delay > 0) {
+      long remaining;
+      while ((remaining = changed + delay - SystemClock.uptimeMillis()) > 0)
+        SystemClock.sleep(remaining);
+    }
+    if (isStale(query))
+      return skip();
+
+    SymbolIndex index = cache.getIndex();
+    if (index == null)
+      return null;
+    // Building the index on the first query may outlast the typing pause
+    if (isStale(query))
+      return skip();
+
+    SymbolIndex.Result result;
+    if (!TextUtils.isEmpty(query))
+      result = index.search(query);
     else
-      return cache.getStocks();
+      result = index.getAll();
+    if (isStale(query))
+      return skip();
+    return new SymbolCursor(index, result);
+  }
+
+  @Override
+  public void beforeTextChanged(CharSequence s, int start, int count,
+      int after) {
+    // Intentionally left blank
+  }
+
+  @Override
+  public void onTextChanged(CharSequence s, int start, int before, int count) {
+    // Record the new text here since the view runs its filter from
+    // afterTextChanged, which is always called after this method
+    latest = s.toString();
+    changed = SystemClock.uptimeMillis();
+  }
+
+  @Override
+  public void afterTextChanged(Editable s) {
+    // Intentionally left blank
   }
 }
@@ -16,18 +16,20 @@
 package com.github.kevinsawicki.hindstock;
 
 import android.content.Context;
-import android.database.Cursor;
-import android.os.AsyncTask;
 
 /**
- * Loader for list of all stocks
+ * Loader of the in-memory {@link SymbolIndex} of all stocks used for
+ * completing and filtering symbols, run through the {@link RetainedLoader}
+ * under {@link #KEY}
  */
-public class StocksLoader extends AsyncTask<Void, Void, Cursor> {
+public class StocksLoader implements RetainedLoader.Load<SymbolIndex> {
 
   /**
-   * Context
+   * Key of the index in the {@link RetainedLoader}
    */
-  protected final Context context;
+  public static final String KEY = "stocks:index";
+
+  private final Context context;
 
   /**
    * Create stock list loader
@@ -39,7 +41,7 @@ public class StocksLoader extends AsyncTask<Void, Void, Cursor> {
   }
 
   @Override
-  protected Cursor doInBackground(Void... params) {
-    return new StocksCache(context).getStocks();
+  public SymbolIndex load() {
+    return StocksCache.getInstance(context).getIndex();
   }
 }
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2012 Kevin Sawicki <kevinsawicki@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.kevinsawicki.hindstock;
+
+import android.database.AbstractCursor;
+
+/**
+ * Cursor over rows of a {@link SymbolIndex} with the same columns as the
+ * cursors returned from {@link StocksCache}
+ */
+public class SymbolCursor extends AbstractCursor {
+
+  private static final String[] COLUMNS = new String[] { "_id", "symbol",
+      "name", "exchange" };
+
+  private final SymbolIndex index;
+
+  private final SymbolIndex.Result result;
+
+  /**
+   * Create cursor over index result
+   *
+   * @param index
+   * @param result
+   */
+  public SymbolCursor(final SymbolIndex index, final SymbolIndex.Result result) {
+    this.index = index;
+    this.result = result;
+  }
+
+  private int getRow() {
+    return result.rows[getPosition()];
+  }
+
+  @Override
+  public int getCount() {
+    return result.size;
+  }
+
+  @Override
+  public String[] getColumnNames() {
+    return COLUMNS;
+  }
+
+  @Override
+  public String getString(final int column) {
+    final int row = getRow();
+    switch (column) {
+    case 0:
+      return Long.toString(index.getId(row));
+    case 1:
+      return index.getSymbol(row);
+    case 2:
+      return index.getName(row);
+    case 3:
+      return index.getExchange(row);
+    default:
+      throw new IllegalArgumentException("Invalid column: " + column);
+    }
+  }
+
+  @Override
+  public long getLong(final int column) {
+    if (column == 0)
+      return index.getId(getRow());
+    else
+      return Long.parseLong(getString(column));
+  }
+
+  @Override
+  public int getInt(final int column) {
+    return (int) getLong(column);
+  }
+
+  @Override
+  public short getShort(final int column) {
+    return (short) getLong(column);
+  }
+
+  @Override
+  public float getFloat(final int column) {
+    return getLong(column);
+  }
+
+  @Override
+  public double getDouble(final int column) {
+    return getLong(column);
+  }
+
+  @Override
+  public boolean isNull(final int column) {
+    return getString(column) == null;
+  }
+}
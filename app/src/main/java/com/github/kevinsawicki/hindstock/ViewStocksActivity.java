@@ -18,9 +18,8 @@ package com.github.kevinsawicki.hindstock;
 import static android.content.Intent.FLAG_ACTIVITY_CLEAR_TOP;
 import static android.content.Intent.FLAG_ACTIVITY_SINGLE_TOP;
 import static com.github.kevinsawicki.hindstock.IntentConstant.EXTRA_STOCK;
+import android.content.Context;
 import android.content.Intent;
-import android.database.Cursor;
-import android.os.AsyncTask;
 import android.os.Bundle;
 import android.view.View;
 import android.widget.AdapterView;
@@ -32,12 +31,22 @@ import com.actionbarsherlock.view.MenuItem;
 import com.github.kevinsawicki.hindstock.R.layout;
 import com.github.kevinsawicki.wishlist.ViewFinder;
 
+import java.io.IOException;
+
 /**
  * Activity to view and select a stock
  */
 public class ViewStocksActivity extends SherlockActivity implements
     OnItemClickListener {
 
+  /**
+   * Key of the paged stocks in the {@link RetainedLoader}, kept across
+   * instances so the stocks are only counted and sectioned once
+   */
+  private static final String KEY = "stocks:pages";
+
+  private RetainedLoader.Listener<PagedStocks> stocksListener;
+
   @Override
   protected void onCreate(Bundle savedInstanceState) {
     super.onCreate(savedInstanceState);
@@ -50,26 +59,46 @@ public class ViewStocksActivity extends SherlockActivity implements
     list.setOnItemClickListener(this);
     list.setFastScrollEnabled(true);
 
-    new AsyncTask<Void, Void, Cursor>() {
+    final Context context = getApplicationContext();
+    stocksListener = new RetainedLoader.Listener<PagedStocks>() {
 
       @Override
-      protected Cursor doInBackground(Void... params) {
-        return new StocksCache(getApplicationContext()).getStocks();
+      public void onLoaded(PagedStocks stocks) {
+        if (stocks != null)
+          list.setAdapter(new StockPageAdapter(context, stocks));
+        else
+          RetainedLoader.getInstance().release(KEY);
       }
 
       @Override
-      protected void onPostExecute(Cursor result) {
-        if (result != null)
-          list.setAdapter(new StockListAdapter(getApplicationContext(), result));
+      public void onFailed(IOException cause) {
+        // Loading stocks doesn't throw I/O exceptions
       }
+    };
+    RetainedLoader.getInstance().load(KEY,
+        new RetainedLoader.Load<PagedStocks>() {
+
+          @Override
+          public PagedStocks load() {
+            return PagedStocks.load(StocksCache.getInstance(context));
+          }
+        }, stocksListener);
+  }
+
+  @Override
+  protected void onDestroy() {
+    super.onDestroy();
 
-    }.execute();
+    RetainedLoader.getInstance().detach(stocksListener);
   }
 
   @Override
   public void onItemClick(AdapterView<?> parent, View view, int position,
       long id) {
-    Stock stock = ((StockListAdapter) parent.getAdapter()).getStock(position);
+    Stock stock = ((StockPageAdapter) parent.getAdapter()).getStock(position);
+    if (stock == null)
+      return;
+
     Intent data = new Intent();
     data.putExtra(EXTRA_STOCK.name(), stock);
     setResult(RESULT_OK, data);
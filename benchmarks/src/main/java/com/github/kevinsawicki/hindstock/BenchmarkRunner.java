@@ -0,0 +1,76 @@
+/*
+ * Copyright 2012 Kevin Sawicki <kevinsawicki@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.kevinsawicki.hindstock;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runner of the JMH benchmarks that writes results as JSON by default
+ * <p>
+ * Accepts the standard JMH command line options, listing the benchmarks,
+ * profilers, or result formats or showing help instead of running when asked
+ * to as JMH's own main does. Unless -rf or -rff are
+ * specified the results are written to jmh-result.json in the working
+ * directory so runs from different commits can be diffed.
+ */
+public class BenchmarkRunner {
+
+	/**
+	 * Default results file
+	 */
+	public static final String RESULTS = "jmh-result.json";
+
+	/**
+	 * Run benchmarks
+	 *
+	 * @param args
+	 * @throws Exception
+	 */
+	public static void main(String[] args) throws Exception {
+		CommandLineOptions options = new CommandLineOptions(args);
+		if (options.shouldHelp()) {
+			options.showHelp();
+			return;
+		}
+		if (options.shouldListProfilers()) {
+			options.listProfilers();
+			return;
+		}
+		if (options.shouldListResultFormats()) {
+			options.listResultFormats();
+			return;
+		}
+		if (options.shouldList()) {
+			new Runner(options).list();
+			return;
+		}
+		if (options.shouldListWithParams()) {
+			new Runner(options).listWithParams(options);
+			return;
+		}
+
+		ChainedOptionsBuilder builder = new OptionsBuilder().parent(options);
+		if (!options.getResultFormat().hasValue())
+			builder.resultFormat(ResultFormatType.JSON);
+		if (!options.getResult().hasValue())
+			builder.result(RESULTS);
+		new Runner(builder.build()).run();
+	}
+}
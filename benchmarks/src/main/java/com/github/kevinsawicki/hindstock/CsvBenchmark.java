@@ -0,0 +1,130 @@
+/*
+ * Copyright 2012 Kevin Sawicki <kevinsawicki@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.kevinsawicki.hindstock;
+
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.StringReader;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of tokenizing the NASDAQ, NYSE, and AMEX company lists held in
+ * memory with {@link CsvReader} and with the line based indexOf and substring
+ * tokenizing previously used by SymbolLoader, reading the symbol and name of
+ * every row
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class CsvBenchmark {
+
+	private String csv;
+
+	/**
+	 * Read the CSV files bundled with the loader into memory
+	 *
+	 * @throws IOException
+	 */
+	@Setup(Level.Trial)
+	public void read() throws IOException {
+		File directory = Resources.createDirectory();
+		StringBuilder builder = new StringBuilder();
+		for (String name : new String[] { "amex.csv", "nasdaq.csv",
+				"nyse.csv" }) {
+			BufferedReader reader = new BufferedReader(new FileReader(
+					Resources.extract(name, directory)));
+			try {
+				// Skip header
+				reader.readLine();
+				String line;
+				while ((line = reader.readLine()) != null)
+					builder.append(line).append('\n');
+			} finally {
+				reader.close();
+			}
+		}
+		csv = builder.toString();
+	}
+
+	/**
+	 * Tokenize with {@link CsvReader}
+	 *
+	 * @return total length of the symbols and names read
+	 * @throws IOException
+	 */
+	@Benchmark
+	public int csvReader() throws IOException {
+		CsvReader reader = new CsvReader(new StringReader(csv));
+		int total = 0;
+		while (reader.next())
+			if (reader.indexOf(0, '^') == -1)
+				total += reader.get(0).length() + reader.get(1).length();
+		return total;
+	}
+
+	/**
+	 * Tokenize each line by searching for quotes and creating a substring for
+	 * every column
+	 *
+	 * @return total length of the symbols and names read
+	 * @throws IOException
+	 */
+	@Benchmark
+	public int indexOfSubstring() throws IOException {
+		BufferedReader reader = new BufferedReader(new StringReader(csv));
+		int total = 0;
+		String line;
+		while ((line = reader.readLine()) != null) {
+			final int length = line.length();
+			int start = 1;
+			int quote = line.indexOf('"', start);
+			String symbol = null;
+			String name = null;
+			for (int column = 0; start < length; column++) {
+				String value = line.substring(start, quote);
+				if (column == 0)
+					symbol = value;
+				else if (column == 1)
+					name = value;
+				start = quote + 3;
+				quote = line.indexOf('"', start);
+				if (quote == -1)
+					quote = length;
+			}
+			if (symbol.indexOf('^') == -1)
+				total += symbol.length() + name.length();
+		}
+		return total;
+	}
+}
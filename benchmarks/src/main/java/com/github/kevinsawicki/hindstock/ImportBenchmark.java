@@ -0,0 +1,183 @@
+/*
+ * Copyright 2012 Kevin Sawicki <kevinsawicki@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.kevinsawicki.hindstock;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of populating the stocks database the way StocksCache does on
+ * first launch: importing stocks.bin, or previously stocks.txt, with one
+ * compiled statement and a deferred full-text index build, or copying the
+ * prebuilt stocks.db
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 20)
+@Fork(1)
+public class ImportBenchmark {
+
+	private File symbols;
+
+	private File binary;
+
+	private File prebuilt;
+
+	private File target;
+
+	/**
+	 * Extract the bundled symbol list and database
+	 *
+	 * @throws IOException
+	 */
+	@Setup(Level.Trial)
+	public void extract() throws IOException {
+		File directory = Resources.createDirectory();
+		symbols = Resources.extract("stocks.txt", directory);
+		binary = Resources.extract("stocks.bin", directory);
+		prebuilt = Resources.extract("stocks.db", directory);
+		target = new File(directory, "import.db");
+		target.deleteOnExit();
+	}
+
+	/**
+	 * Delete the database written by the previous invocation
+	 *
+	 * @throws IOException
+	 */
+	@Setup(Level.Invocation)
+	public void reset() throws IOException {
+		if (target.exists() && !target.delete())
+			throw new IOException("Unable to delete "
+					+ target.getAbsolutePath());
+	}
+
+	/**
+	 * Import the text symbol list into a new database
+	 *
+	 * @return number of stocks imported
+	 * @throws IOException
+	 * @throws SQLException
+	 */
+	@Benchmark
+	public int bulkImport() throws IOException, SQLException {
+		BufferedReader reader = new BufferedReader(new FileReader(symbols),
+				8192 * 2);
+		Connection connection = DatabaseLoader.open(target);
+		try {
+			DatabaseLoader.createTables(connection);
+			connection.setAutoCommit(false);
+			int count = DatabaseLoader.insertStocks(connection, reader);
+			DatabaseLoader.buildIndex(connection);
+			connection.commit();
+			return count;
+		} finally {
+			connection.close();
+			reader.close();
+		}
+	}
+
+	/**
+	 * Import the binary symbol list into a new database
+	 *
+	 * @return number of stocks imported
+	 * @throws IOException
+	 * @throws SQLException
+	 */
+	@Benchmark
+	public int binaryImport() throws IOException, SQLException {
+		InputStream input = new FileInputStream(binary);
+		SymbolFile file;
+		try {
+			file = SymbolFile.read(input);
+		} finally {
+			input.close();
+		}
+
+		Connection connection = DatabaseLoader.open(target);
+		try {
+			DatabaseLoader.createTables(connection);
+			connection.setAutoCommit(false);
+			PreparedStatement stocks = connection
+					.prepareStatement("INSERT INTO stocks (symbol, name, exchange) VALUES (?, ?, ?);");
+			try {
+				for (int i = 0; i < file.size(); i++) {
+					stocks.setString(1, file.getSymbol(i));
+					stocks.setString(2, file.getName(i));
+					stocks.setString(3, file.getExchange(i));
+					stocks.executeUpdate();
+				}
+			} finally {
+				stocks.close();
+			}
+			DatabaseLoader.buildIndex(connection);
+			connection.commit();
+			return file.size();
+		} finally {
+			connection.close();
+		}
+	}
+
+	/**
+	 * Copy the prebuilt database
+	 *
+	 * @return number of bytes copied
+	 * @throws IOException
+	 */
+	@Benchmark
+	public long copyPrebuilt() throws IOException {
+		long copied = 0;
+		InputStream input = new FileInputStream(prebuilt);
+		OutputStream output = new FileOutputStream(target);
+		try {
+			byte[] buffer = new byte[8192];
+			int read;
+			while ((read = input.read(buffer)) != -1) {
+				output.write(buffer, 0, read);
+				copied += read;
+			}
+		} finally {
+			input.close();
+			output.close();
+		}
+		return copied;
+	}
+}
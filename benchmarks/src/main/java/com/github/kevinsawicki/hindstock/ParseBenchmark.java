@@ -0,0 +1,105 @@
+/*
+ * Copyright 2012 Kevin Sawicki <kevinsawicki@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.kevinsawicki.hindstock;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of parsing the NASDAQ, NYSE, and AMEX company list CSV files with
+ * {@link SymbolLoader#load()} serially and with a thread per file
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class ParseBenchmark {
+
+	/**
+	 * Maximum number of files parsed at once
+	 */
+	@Param({ "1", "3" })
+	public int threads;
+
+	private File directory;
+
+	private File output;
+
+	private PrintStream out;
+
+	/**
+	 * Extract the CSV files bundled with the loader
+	 *
+	 * @throws IOException
+	 */
+	@Setup(Level.Trial)
+	public void extract() throws IOException {
+		directory = Resources.createDirectory();
+		Resources.extract("amex.csv", directory);
+		Resources.extract("nasdaq.csv", directory);
+		Resources.extract("nyse.csv", directory);
+		output = new File(directory, "stocks.txt");
+
+		// SymbolLoader prints each file it opens
+		out = System.out;
+		System.setOut(new PrintStream(new OutputStream() {
+
+			@Override
+			public void write(int b) {
+				// Ignored
+			}
+		}));
+	}
+
+	/**
+	 * Restore standard output
+	 */
+	@TearDown(Level.Trial)
+	public void restore() {
+		System.setOut(out);
+	}
+
+	/**
+	 * Parse and merge every CSV file
+	 *
+	 * @return number of symbols found
+	 * @throws IOException
+	 */
+	@Benchmark
+	public int parse() throws IOException {
+		return new SymbolLoader(output, directory, threads).load();
+	}
+}
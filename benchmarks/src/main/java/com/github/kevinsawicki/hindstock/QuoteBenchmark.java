@@ -0,0 +1,165 @@
+/*
+ * Copyright 2012 Kevin Sawicki <kevinsawicki@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.kevinsawicki.hindstock;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of the {@link Quote} cost, net, and rate arithmetic over a fixed
+ * set of randomly generated quotes and of the same arithmetic in {@link Money}
+ * fixed-point, float, and {@link BigDecimal} over the quotes' prices and shares
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class QuoteBenchmark {
+
+	private static final int QUOTES = 1024;
+
+	private static final BigDecimal HUNDRED = BigDecimal.valueOf(100);
+
+	private Quote[] quotes;
+
+	private float[] buyPrices;
+
+	private float[] sellPrices;
+
+	private float[] shares;
+
+	private long[] buyMicros;
+
+	private long[] sellMicros;
+
+	private long[] shareMicros;
+
+	/**
+	 * Generate quotes with the same seed on every run
+	 */
+	@Setup(Level.Trial)
+	public void generate() {
+		Random random = new Random(42);
+		quotes = new Quote[QUOTES];
+		buyPrices = new float[QUOTES];
+		sellPrices = new float[QUOTES];
+		shares = new float[QUOTES];
+		buyMicros = new long[QUOTES];
+		sellMicros = new long[QUOTES];
+		shareMicros = new long[QUOTES];
+		for (int i = 0; i < QUOTES; i++) {
+			buyPrices[i] = 1 + random.nextFloat() * 500;
+			sellPrices[i] = 1 + random.nextFloat() * 500;
+			shares[i] = 1 + random.nextInt(1000);
+			buyMicros[i] = Money.toMicros(buyPrices[i]);
+			sellMicros[i] = Money.toMicros(sellPrices[i]);
+			shareMicros[i] = Money.toMicros(shares[i]);
+			quotes[i] = new Quote(buyPrices[i], sellPrices[i], shareMicros[i]);
+		}
+	}
+
+	/**
+	 * Total the cost, net amount, and return rate of every quote
+	 *
+	 * @return sum of all values
+	 */
+	@Benchmark
+	public double compute() {
+		double total = 0;
+		for (Quote quote : quotes)
+			total += quote.getCost() + quote.getNet() + quote.getRate();
+		return total;
+	}
+
+	/**
+	 * Total the cost and net amount in cents and the return rate of every
+	 * price and share count in fixed-point
+	 *
+	 * @return sum of all values
+	 */
+	@Benchmark
+	public double computeFixed() {
+		long amounts = 0;
+		double rates = 0;
+		for (int i = 0; i < QUOTES; i++) {
+			long cost = Money.multiply(buyMicros[i], shareMicros[i]);
+			long net = Money.multiply(sellMicros[i] - buyMicros[i],
+					shareMicros[i]);
+			amounts += cost + net;
+			rates += (double) net / cost;
+		}
+		return amounts + rates * 100;
+	}
+
+	/**
+	 * Total the cost, net amount, and return rate of every price and share
+	 * count in float
+	 *
+	 * @return sum of all values
+	 */
+	@Benchmark
+	public double computeFloat() {
+		double amounts = 0;
+		double rates = 0;
+		for (int i = 0; i < QUOTES; i++) {
+			float cost = buyPrices[i] * shares[i];
+			float net = (sellPrices[i] - buyPrices[i]) * shares[i];
+			amounts += cost + net;
+			rates += net / cost;
+		}
+		return amounts + rates * 100;
+	}
+
+	/**
+	 * Total the cost and net amount rounded to the cent and the return rate of
+	 * every price and share count in {@link BigDecimal}
+	 *
+	 * @return sum of all values
+	 */
+	@Benchmark
+	public double computeBigDecimal() {
+		BigDecimal amounts = BigDecimal.ZERO;
+		BigDecimal rates = BigDecimal.ZERO;
+		for (int i = 0; i < QUOTES; i++) {
+			BigDecimal buy = new BigDecimal(buyPrices[i]);
+			BigDecimal count = new BigDecimal(shares[i]);
+			BigDecimal cost = buy.multiply(count).setScale(2,
+					RoundingMode.HALF_UP);
+			BigDecimal net = new BigDecimal(sellPrices[i]).subtract(buy)
+					.multiply(count).setScale(2, RoundingMode.HALF_UP);
+			amounts = amounts.add(cost).add(net);
+			rates = rates.add(net.divide(cost, 10, RoundingMode.HALF_UP));
+		}
+		return amounts.add(rates.multiply(HUNDRED)).doubleValue();
+	}
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2012 Kevin Sawicki <kevinsawicki@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.kevinsawicki.hindstock;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Utilities for copying benchmark data bundled on the class path to files
+ */
+public class Resources {
+
+	/**
+	 * Copy class path resource to a file in the directory
+	 *
+	 * @param name
+	 * @param directory
+	 * @return file
+	 * @throws IOException
+	 */
+	public static File extract(final String name, final File directory)
+			throws IOException {
+		InputStream input = Resources.class.getResourceAsStream("/" + name);
+		if (input == null)
+			throw new FileNotFoundException(name + " not found on class path");
+
+		File file = new File(directory, name);
+		file.deleteOnExit();
+		OutputStream output = new FileOutputStream(file);
+		try {
+			byte[] buffer = new byte[8192];
+			int read;
+			while ((read = input.read(buffer)) != -1)
+				output.write(buffer, 0, read);
+		} finally {
+			input.close();
+			output.close();
+		}
+		return file;
+	}
+
+	/**
+	 * Create a new empty temporary directory
+	 *
+	 * @return directory
+	 * @throws IOException
+	 */
+	public static File createDirectory() throws IOException {
+		File directory = File.createTempFile("benchmark", "");
+		if (!directory.delete() || !directory.mkdir())
+			throw new IOException("Unable to create "
+					+ directory.getAbsolutePath());
+		directory.deleteOnExit();
+		return directory;
+	}
+}
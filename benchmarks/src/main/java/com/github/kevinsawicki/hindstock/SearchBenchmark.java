@@ -0,0 +1,100 @@
+/*
+ * Copyright 2012 Kevin Sawicki <kevinsawicki@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.kevinsawicki.hindstock;
+
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of symbol search with the in-memory {@link SymbolIndex} used by
+ * StocksFilter
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class SearchBenchmark {
+
+	/**
+	 * Text typed into the symbol field
+	 */
+	@Param({ "A", "GO", "GOO", "BANK", "AMERICAN EL" })
+	public String query;
+
+	private SymbolIndex index;
+
+	/**
+	 * Build the index from the symbol list
+	 *
+	 * @throws IOException
+	 */
+	@Setup(Level.Trial)
+	public void open() throws IOException {
+		File directory = Resources.createDirectory();
+		List<String> symbols = new ArrayList<String>();
+		List<String> names = new ArrayList<String>();
+		List<String> exchanges = new ArrayList<String>();
+		BufferedReader reader = new BufferedReader(new FileReader(
+				Resources.extract("stocks.txt", directory)), 8192 * 2);
+		try {
+			String symbol;
+			while ((symbol = reader.readLine()) != null) {
+				symbols.add(symbol);
+				names.add(reader.readLine());
+				exchanges.add(reader.readLine());
+			}
+		} finally {
+			reader.close();
+		}
+		long[] ids = new long[symbols.size()];
+		for (int i = 0; i < ids.length; i++)
+			ids[i] = i + 1;
+		index = new SymbolIndex(ids, symbols.toArray(new String[ids.length]),
+				names.toArray(new String[ids.length]),
+				exchanges.toArray(new String[ids.length]));
+	}
+
+	/**
+	 * Search the in-memory index
+	 *
+	 * @return number of matches
+	 */
+	@Benchmark
+	public int memoryIndex() {
+		return index.search(query).size;
+	}
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2012 Kevin Sawicki <kevinsawicki@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.kevinsawicki.hindstock;
+
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of finding the price for 1,000 random days in twenty years of
+ * daily bars with a binary search of a {@link PriceSeries} compared to
+ * scanning the bars newest first the way {@link RequestPlanner#pick} does
+ * with the bars returned from a {@link BarCache}
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class SeriesBenchmark {
+
+	private static final int YEARS = 20;
+
+	private static final int LOOKUPS = 1000;
+
+	private List<Bar> bars;
+
+	private PriceSeries series;
+
+	private DayRange[] windows;
+
+	/**
+	 * Create bars for every weekday and the windows looked up
+	 */
+	@Setup(Level.Trial)
+	public void create() {
+		Random random = new Random(1);
+		int first = EpochDays.toDay(1990, 1, 1);
+		int last = first + 365 * YEARS;
+		bars = new ArrayList<Bar>();
+		// Newest first like the bars cached and requested
+		for (int day = last; day >= first; day--)
+			// Epoch day 0 is a Thursday
+			if ((day + 3) % 7 < 5) {
+				float price = 10 + random.nextFloat();
+				bars.add(new Bar(day, price, price, price, price, 1000));
+			}
+		series = new PriceSeries("GOOG").add(new DayRange(first, last), bars);
+
+		windows = new DayRange[LOOKUPS];
+		for (int i = 0; i < LOOKUPS; i++) {
+			int day = first + PriceResolver.WINDOW
+					+ random.nextInt(last - first - PriceResolver.WINDOW);
+			windows[i] = new DayRange(day - PriceResolver.WINDOW, day);
+		}
+	}
+
+	/**
+	 * Scan the list of bars for each window
+	 *
+	 * @return sum of prices found
+	 */
+	@Benchmark
+	public float listPick() {
+		float total = 0;
+		for (DayRange window : windows)
+			total += RequestPlanner.pick(bars, window).getSellPrice();
+		return total;
+	}
+
+	/**
+	 * Binary search the series for each window
+	 *
+	 * @return sum of prices found
+	 */
+	@Benchmark
+	public float seriesPick() {
+		float total = 0;
+		for (DayRange window : windows)
+			total += series.getSellPrice(series.pick(window));
+		return total;
+	}
+}
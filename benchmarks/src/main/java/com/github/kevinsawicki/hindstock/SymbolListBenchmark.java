@@ -0,0 +1,118 @@
+/*
+ * Copyright 2012 Kevin Sawicki <kevinsawicki@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.kevinsawicki.hindstock;
+
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of reading every symbol, name, and exchange from the text
+ * stocks.txt three lines per stock and from the binary stocks.bin, both held
+ * in memory
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class SymbolListBenchmark {
+
+	private static byte[] readFully(final File file) throws IOException {
+		ByteArrayOutputStream output = new ByteArrayOutputStream(
+				(int) file.length());
+		InputStream input = new FileInputStream(file);
+		try {
+			byte[] buffer = new byte[8192];
+			int read;
+			while ((read = input.read(buffer)) != -1)
+				output.write(buffer, 0, read);
+		} finally {
+			input.close();
+		}
+		return output.toByteArray();
+	}
+
+	private byte[] text;
+
+	private byte[] binary;
+
+	/**
+	 * Read both symbol lists into memory
+	 *
+	 * @throws IOException
+	 */
+	@Setup(Level.Trial)
+	public void read() throws IOException {
+		File directory = Resources.createDirectory();
+		text = readFully(Resources.extract("stocks.txt", directory));
+		binary = readFully(Resources.extract("stocks.bin", directory));
+	}
+
+	/**
+	 * Read the text symbol list
+	 *
+	 * @return total length of the values read
+	 * @throws IOException
+	 */
+	@Benchmark
+	public int readText() throws IOException {
+		BufferedReader reader = new BufferedReader(new InputStreamReader(
+				new ByteArrayInputStream(text)), 8192 * 2);
+		int total = 0;
+		String symbol;
+		while ((symbol = reader.readLine()) != null)
+			total += symbol.length() + reader.readLine().length()
+					+ reader.readLine().length();
+		return total;
+	}
+
+	/**
+	 * Read the binary symbol list
+	 *
+	 * @return total length of the values read
+	 * @throws IOException
+	 */
+	@Benchmark
+	public int readBinary() throws IOException {
+		SymbolFile file = SymbolFile.read(new ByteArrayInputStream(binary));
+		int total = 0;
+		for (int i = 0; i < file.size(); i++)
+			total += file.getSymbol(i).length() + file.getName(i).length()
+					+ file.getExchange(i).length();
+		return total;
+	}
+}
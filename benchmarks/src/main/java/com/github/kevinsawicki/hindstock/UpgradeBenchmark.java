@@ -0,0 +1,206 @@
+/*
+ * Copyright 2012 Kevin Sawicki <kevinsawicki@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.kevinsawicki.hindstock;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of upgrading the stocks database to a new symbol list version by
+ * applying a {@link SymbolDelta} in place compared to dropping the tables and
+ * importing the full list again
+ * <p>
+ * The new version is derived from stocks.bin by removing, renaming, renaming
+ * the company of, and adding a small fraction of stocks, similar to the churn
+ * between two releases of the company lists.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 20)
+@Fork(1)
+public class UpgradeBenchmark {
+
+	private File prebuilt;
+
+	private File target;
+
+	private SymbolFile next;
+
+	private SymbolDelta delta;
+
+	/**
+	 * Extract the prebuilt database and derive the next symbol list version
+	 *
+	 * @throws IOException
+	 */
+	@Setup(Level.Trial)
+	public void extract() throws IOException {
+		File directory = Resources.createDirectory();
+		prebuilt = Resources.extract("stocks.db", directory);
+		target = new File(directory, "upgrade.db");
+		target.deleteOnExit();
+
+		InputStream input = new FileInputStream(Resources.extract(
+				"stocks.bin", directory));
+		SymbolFile current;
+		try {
+			current = SymbolFile.read(input);
+		} finally {
+			input.close();
+		}
+
+		Map<String, String[]> stocks = new TreeMap<String, String[]>();
+		for (int i = 0; i < current.size(); i++) {
+			String symbol = current.getSymbol(i);
+			String name = current.getName(i);
+			if (i % 200 == 0)
+				continue;
+			if (i % 300 == 1)
+				symbol = symbol + "W";
+			if (i % 250 == 2)
+				name = name + " Holdings";
+			stocks.put(symbol,
+					new String[] { name, current.getExchange(i) });
+		}
+		for (int i = 0; i < 50; i++)
+			stocks.put("ZZ" + i, new String[] { "Listing " + i, "NASDAQ" });
+
+		final int count = stocks.size();
+		String[] symbols = new String[count];
+		String[] names = new String[count];
+		String[] exchanges = new String[count];
+		int index = 0;
+		for (Entry<String, String[]> stock : stocks.entrySet()) {
+			symbols[index] = stock.getKey();
+			names[index] = stock.getValue()[0];
+			exchanges[index] = stock.getValue()[1];
+			index++;
+		}
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		SymbolFile.write(output, symbols, names, exchanges);
+		next = SymbolFile.read(new ByteArrayInputStream(output.toByteArray()));
+		delta = SymbolDelta.diff(current, DatabaseLoader.LIST_VERSION, next,
+				DatabaseLoader.LIST_VERSION + 1);
+	}
+
+	/**
+	 * Replace the database written by the previous invocation with a copy of
+	 * the prebuilt database
+	 *
+	 * @throws IOException
+	 */
+	@Setup(Level.Invocation)
+	public void reset() throws IOException {
+		InputStream input = new FileInputStream(prebuilt);
+		OutputStream output = new FileOutputStream(target);
+		try {
+			byte[] buffer = new byte[8192];
+			int read;
+			while ((read = input.read(buffer)) != -1)
+				output.write(buffer, 0, read);
+		} finally {
+			input.close();
+			output.close();
+		}
+	}
+
+	/**
+	 * Apply the delta to the existing tables
+	 *
+	 * @return number of stocks changed
+	 * @throws SQLException
+	 */
+	@Benchmark
+	public int applyDelta() throws SQLException {
+		Connection connection = DatabaseLoader.open(target);
+		try {
+			connection.setAutoCommit(false);
+			DeltaLoader.apply(connection, delta);
+			connection.commit();
+			return delta.size();
+		} finally {
+			connection.close();
+		}
+	}
+
+	/**
+	 * Drop the tables and import the new symbol list
+	 *
+	 * @return number of stocks imported
+	 * @throws SQLException
+	 */
+	@Benchmark
+	public int fullImport() throws SQLException {
+		Connection connection = DatabaseLoader.open(target);
+		try {
+			connection.setAutoCommit(false);
+			Statement statement = connection.createStatement();
+			try {
+				statement.execute("DROP TABLE stocks;");
+				statement.execute("DROP TABLE sections;");
+			} finally {
+				statement.close();
+			}
+			DatabaseLoader.createTables(connection);
+			PreparedStatement stocks = connection
+					.prepareStatement("INSERT INTO stocks (symbol, name, exchange) VALUES (?, ?, ?);");
+			try {
+				for (int i = 0; i < next.size(); i++) {
+					stocks.setString(1, next.getSymbol(i));
+					stocks.setString(2, next.getName(i));
+					stocks.setString(3, next.getExchange(i));
+					stocks.executeUpdate();
+				}
+			} finally {
+				stocks.close();
+			}
+			DatabaseLoader.buildIndex(connection);
+			connection.commit();
+			return next.size();
+		} finally {
+			connection.close();
+		}
+	}
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2012 Kevin Sawicki <kevinsawicki@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.kevinsawicki.hindstock;
+
+/**
+ * Daily open, high, low, and close prices and volume of a stock
+ */
+public class Bar {
+
+  /**
+   * Epoch day of bar
+   */
+  public final int day;
+
+  /**
+   * Opening price
+   */
+  public final float open;
+
+  /**
+   * Highest price
+   */
+  public final float high;
+
+  /**
+   * Lowest price
+   */
+  public final float low;
+
+  /**
+   * Closing price
+   */
+  public final float close;
+
+  /**
+   * Number of shares traded
+   */
+  public final long volume;
+
+  /**
+   * Create bar
+   *
+   * @param day
+   * @param open
+   * @param high
+   * @param low
+   * @param close
+   * @param volume
+   */
+  public Bar(final int day, final float open, final float high,
+      final float low, final float close, final long volume) {
+    this.day = day;
+    this.open = open;
+    this.high = high;
+    this.low = low;
+    this.close = close;
+    this.volume = volume;
+  }
+
+  /**
+   * Get price paid when buying on this day
+   *
+   * @return open price, or close price if no open price is available
+   */
+  public float getBuyPrice() {
+    return open > 0.0F ? open : close;
+  }
+
+  /**
+   * Get price received when selling on this day
+   *
+   * @return close price, or open price if no close price is available
+   */
+  public float getSellPrice() {
+    return close > 0.0F ? close : open;
+  }
+}
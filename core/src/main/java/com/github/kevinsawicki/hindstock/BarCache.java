@@ -0,0 +1,44 @@
+/*
+ * Copyright 2012 Kevin Sawicki <kevinsawicki@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.kevinsawicki.hindstock;
+
+import java.util.List;
+
+/**
+ * Cache of daily price bars by symbol and date range
+ */
+public interface BarCache {
+
+  /**
+   * Get cached bars for the symbol between the start and end epoch days
+   *
+   * @param symbol
+   * @param start
+   * @param end
+   * @return bars ordered newest first, or null if the range is not cached
+   */
+  List<Bar> getBars(String symbol, int start, int end);
+
+  /**
+   * Cache the bars fetched for the symbol between the start and end epoch days
+   *
+   * @param symbol
+   * @param start
+   * @param end
+   * @param bars
+   */
+  void putBars(String symbol, int start, int end, List<Bar> bars);
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2012 Kevin Sawicki <kevinsawicki@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.kevinsawicki.hindstock;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Calculator of the gain/loss of many purchases at once
+ * <p>
+ * Purchases are resolved on a bounded pool of worker threads with every HTTP
+ * request going through a shared {@link RateLimiter}. Each quote is delivered
+ * to the {@link Listener} on the calling thread as soon as it is resolved
+ * rather than once the entire batch completes.
+ */
+public class BatchCalculator {
+
+  /**
+   * Listener notified as each purchase in a batch is resolved
+   */
+  public interface Listener {
+
+    /**
+     * Purchase was resolved to a quote
+     *
+     * @param purchase
+     * @param quote
+     */
+    void onQuote(Purchase purchase, Quote quote);
+
+    /**
+     * Purchase could not be resolved
+     *
+     * @param purchase
+     * @param cause
+     */
+    void onFailure(Purchase purchase, IOException cause);
+  }
+
+  /**
+   * Default number of worker threads
+   */
+  public static final int DEFAULT_THREADS = 4;
+
+  /**
+   * Default maximum number of HTTP requests per second
+   */
+  public static final double DEFAULT_RATE = 5;
+
+  private final ExecutorService executor;
+
+  private final PriceResolver resolver;
+
+  /**
+   * Create calculator with the default number of threads and rate
+   *
+   * @param cache
+   *          may be null to disable caching
+   */
+  public BatchCalculator(final BarCache cache) {
+    this(cache, DEFAULT_THREADS, DEFAULT_RATE);
+  }
+
+  /**
+   * Create calculator
+   *
+   * @param cache
+   *          may be null to disable caching
+   * @param threads
+   *          maximum number of purchases resolved at once
+   * @param permitsPerSecond
+   *          maximum number of HTTP requests per second
+   */
+  public BatchCalculator(final BarCache cache, final int threads,
+      final double permitsPerSecond) {
+    executor = Executors.newFixedThreadPool(threads);
+    // Each worker resolves both windows of its purchase serially so workers
+    // never wait on tasks queued behind them in the same pool
+    resolver = new PriceResolver(cache, new PriceStore(),
+        new TradingCalendar(), null, new RateLimiter(permitsPerSecond));
+  }
+
+  /**
+   * @return number of HTTP requests made
+   */
+  public int getRequestCount() {
+    return resolver.getRequestCount();
+  }
+
+  /**
+   * @return number of HTTP requests saved by merging windows or reading from
+   *         the cache
+   */
+  public int getSavedCount() {
+    return resolver.getSavedCount();
+  }
+
+  /**
+   * Resolve all purchases, notifying the listener on the calling thread in the
+   * order the purchases complete
+   *
+   * @param purchases
+   * @param listener
+   * @throws InterruptedIOException
+   *           if the calling thread is interrupted, pending purchases are
+   *           cancelled
+   */
+  public void calculate(final List<Purchase> purchases,
+      final Listener listener) throws InterruptedIOException {
+    FanOut.run(executor, purchases, new FanOut.Task<Purchase, Quote>() {
+
+      @Override
+      public Quote call(final Purchase purchase) throws IOException {
+        return resolver.getQuote(purchase);
+      }
+
+      @Override
+      public void onResult(final Purchase purchase, final Quote quote) {
+        listener.onQuote(purchase, quote);
+      }
+
+      @Override
+      public void onFailure(final Purchase purchase, final IOException cause) {
+        listener.onFailure(purchase, cause);
+      }
+    }, "Calculating batch");
+  }
+
+  /**
+   * Stop the worker threads, cancelling any purchases still being resolved
+   */
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+}
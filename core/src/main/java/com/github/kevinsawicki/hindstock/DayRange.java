@@ -0,0 +1,88 @@
+/*
+ * Copyright 2012 Kevin Sawicki <kevinsawicki@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.kevinsawicki.hindstock;
+
+/**
+ * Inclusive range of epoch days
+ */
+public class DayRange implements Comparable<DayRange> {
+
+  /**
+   * First epoch day in range
+   */
+  public final int start;
+
+  /**
+   * Last epoch day in range
+   */
+  public final int end;
+
+  /**
+   * Create range
+   *
+   * @param start
+   * @param end
+   */
+  public DayRange(final int start, final int end) {
+    this.start = start;
+    this.end = end;
+  }
+
+  /**
+   * @param day
+   * @return true if day is in this range, false otherwise
+   */
+  public boolean contains(final int day) {
+    return day >= start && day <= end;
+  }
+
+  /**
+   * @param range
+   * @return true if range is completely inside this range, false otherwise
+   */
+  public boolean contains(final DayRange range) {
+    return range.start >= start && range.end <= end;
+  }
+
+  @Override
+  public int compareTo(DayRange other) {
+    if (start != other.start)
+      return start < other.start ? -1 : 1;
+    if (end != other.end)
+      return end < other.end ? -1 : 1;
+    return 0;
+  }
+
+  @Override
+  public int hashCode() {
+    return start * 31 + end;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (o == this)
+      return true;
+    if (!(o instanceof DayRange))
+      return false;
+    DayRange other = (DayRange) o;
+    return start == other.start && end == other.end;
+  }
+
+  @Override
+  public String toString() {
+    return start + "-" + end;
+  }
+}
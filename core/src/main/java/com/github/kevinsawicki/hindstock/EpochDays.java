@@ -0,0 +1,142 @@
+/*
+ * Copyright 2012 Kevin Sawicki <kevinsawicki@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.kevinsawicki.hindstock;
+
+import static java.util.Calendar.DAY_OF_MONTH;
+import static java.util.Calendar.MONTH;
+import static java.util.Calendar.YEAR;
+
+import java.util.Calendar;
+import java.util.Date;
+import java.util.GregorianCalendar;
+
+/**
+ * Utilities for converting calendar dates to and from the number of days
+ * since January 1st, 1970
+ */
+public class EpochDays {
+
+  /**
+   * Get epoch day of year, month, and day of month
+   *
+   * @param year
+   * @param month
+   *          one-based month
+   * @param day
+   * @return epoch day
+   */
+  public static int toDay(int year, final int month, final int day) {
+    // Days from civil algorithm with years starting in March
+    if (month <= 2)
+      year--;
+    final int era = (year >= 0 ? year : year - 399) / 400;
+    final int yearOfEra = year - era * 400;
+    final int dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day
+        - 1;
+    final int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100
+        + dayOfYear;
+    return era * 146097 + dayOfEra - 719468;
+  }
+
+  /**
+   * Get epoch day of calendar's date in the calendar's time zone
+   *
+   * @param calendar
+   * @return epoch day
+   */
+  public static int toDay(final Calendar calendar) {
+    return toDay(calendar.get(YEAR), calendar.get(MONTH) + 1,
+        calendar.get(DAY_OF_MONTH));
+  }
+
+  /**
+   * Get epoch day of date in the default time zone
+   *
+   * @param date
+   * @return epoch day
+   */
+  public static int toDay(final Date date) {
+    Calendar calendar = new GregorianCalendar();
+    calendar.setTime(date);
+    return toDay(calendar);
+  }
+
+  /**
+   * Get epoch day of the current date in the default time zone
+   *
+   * @return epoch day
+   */
+  public static int today() {
+    return toDay(new GregorianCalendar());
+  }
+
+  /**
+   * Get year, one-based month, and day of month of epoch day
+   *
+   * @param day
+   * @return array of year, month, and day of month
+   */
+  private static int[] toCivil(final int day) {
+    // Civil from days algorithm with years starting in March
+    final int shifted = day + 719468;
+    final int era = (shifted >= 0 ? shifted : shifted - 146096) / 146097;
+    final int dayOfEra = shifted - era * 146097;
+    final int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra
+        / 146096) / 365;
+    final int dayOfYear = dayOfEra
+        - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+    final int monthIndex = (5 * dayOfYear + 2) / 153;
+    final int dayOfMonth = dayOfYear - (153 * monthIndex + 2) / 5 + 1;
+    final int month = monthIndex < 10 ? monthIndex + 3 : monthIndex - 9;
+    final int year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+    return new int[] { year, month, dayOfMonth };
+  }
+
+  /**
+   * Get date at the start of the epoch day in the default time zone
+   *
+   * @param day
+   * @return date
+   */
+  public static Date toDate(final int day) {
+    final int[] civil = toCivil(day);
+    return new GregorianCalendar(civil[0], civil[1] - 1, civil[2]).getTime();
+  }
+
+  /**
+   * Get year of epoch day
+   *
+   * @param day
+   * @return year
+   */
+  public static int getYear(final int day) {
+    return toCivil(day)[0];
+  }
+
+  /**
+   * Get day of week of epoch day
+   *
+   * @param day
+   * @return day of week from 1 for Monday to 7 for Sunday
+   */
+  public static int getDayOfWeek(final int day) {
+    // Epoch day 0 is a Thursday
+    int index = (day + 3) % 7;
+    if (index < 0)
+      index += 7;
+    return index + 1;
+  }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2012 Kevin Sawicki <kevinsawicki@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.kevinsawicki.hindstock;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Runner of one task per key on an executor that delivers each result to
+ * the calling thread in the order the tasks complete
+ */
+final class FanOut {
+
+  /**
+   * Task run for each key along with the handling of its outcome
+   *
+   * @param <K>
+   * @param <V>
+   */
+  interface Task<K, V> {
+
+    /**
+     * Compute the result of key on a worker thread
+     *
+     * @param key
+     * @return result
+     * @throws Exception
+     */
+    V call(K key) throws Exception;
+
+    /**
+     * Result of key was computed, called on the calling thread
+     *
+     * @param key
+     * @param result
+     */
+    void onResult(K key, V result);
+
+    /**
+     * Result of key could not be computed, called on the calling thread
+     *
+     * @param key
+     * @param cause
+     */
+    void onFailure(K key, IOException cause);
+  }
+
+  private FanOut() {
+  }
+
+  /**
+   * Run the task of every key and wait for all of them to complete
+   * <p>
+   * Runtime exceptions thrown by a task are rethrown on the calling thread.
+   *
+   * @param executor
+   * @param keys
+   * @param task
+   * @param name
+   *          name of the work used in the interruption message
+   * @throws InterruptedIOException
+   *           if the calling thread is interrupted, pending tasks are
+   *           cancelled
+   */
+  static <K, V> void run(final ExecutorService executor,
+      final Collection<K> keys, final Task<K, V> task, final String name)
+      throws InterruptedIOException {
+    CompletionService<V> service = new ExecutorCompletionService<V>(executor);
+    Map<Future<V>, K> pending = new HashMap<Future<V>, K>(keys.size() * 2);
+    for (final K key : keys)
+      pending.put(service.submit(new Callable<V>() {
+
+        @Override
+        public V call() throws Exception {
+          return task.call(key);
+        }
+      }), key);
+
+    try {
+      while (!pending.isEmpty()) {
+        Future<V> completed = service.take();
+        K key = pending.remove(completed);
+        V result;
+        try {
+          result = completed.get();
+        } catch (ExecutionException e) {
+          Throwable cause = e.getCause();
+          if (cause instanceof IOException)
+            task.onFailure(key, (IOException) cause);
+          else if (cause instanceof RuntimeException)
+            throw (RuntimeException) cause;
+          else
+            task.onFailure(key, new IOException(cause.getMessage()));
+          continue;
+        }
+        task.onResult(key, result);
+      }
+    } catch (InterruptedException e) {
+      throw new InterruptedIOException(name + " interrupted");
+    } finally {
+      for (Future<V> future : pending.keySet())
+        future.cancel(true);
+    }
+  }
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright 2012 Kevin Sawicki <kevinsawicki@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.kevinsawicki.hindstock;
+
+/**
+ * Utilities for fixed-point money amounts stored in a long
+ * <p>
+ * Prices and share counts are stored in millionths so sub-penny prices and
+ * fractional shares bought with a dollar amount survive, and amounts are
+ * stored in cents which is exact up to about 92 quadrillion dollars. The
+ * product of a price and a share count is rounded to the nearest cent exactly,
+ * without overflowing the intermediate product or allocating.
+ */
+public class Money {
+
+  /**
+   * Millionths of a dollar or share in one dollar or share
+   */
+  public static final long MICROS = 1000000L;
+
+  /**
+   * Cents in one dollar
+   */
+  public static final long CENTS = 100L;
+
+  private static final long MICROS_PER_CENT = MICROS / CENTS;
+
+  /**
+   * Products of a millionth of a dollar and a millionth of a share in one cent
+   */
+  private static final long SCALE = MICROS_PER_CENT * MICROS;
+
+  /**
+   * Convert dollars or shares to millionths
+   *
+   * @param value
+   *          up to about 9 trillion
+   * @return millionths
+   */
+  public static long toMicros(final float value) {
+    return Math.round((double) value * MICROS);
+  }
+
+  /**
+   * Convert millionths to dollars or shares
+   *
+   * @param micros
+   * @return dollars or shares
+   */
+  public static double fromMicros(final long micros) {
+    return (double) micros / MICROS;
+  }
+
+  /**
+   * Parse decimal dollars or shares into millionths
+   *
+   * @param text
+   * @return millionths
+   * @throws NumberFormatException
+   */
+  public static long parseMicros(final String text) {
+    return parse(text, MICROS);
+  }
+
+  /**
+   * Parse decimal dollars into cents
+   *
+   * @param text
+   * @return cents
+   * @throws NumberFormatException
+   */
+  public static long parseCents(final String text) {
+    return parse(text, CENTS);
+  }
+
+  /**
+   * Parse a decimal number with an optional sign into a multiple of unit
+   * digit by digit, rounding digits past the unit half away from zero
+   *
+   * @param text
+   * @param unit
+   *          power of ten
+   * @return value in units
+   * @throws NumberFormatException
+   */
+  private static long parse(final String text, final long unit) {
+    final int length = text.length();
+    int index = 0;
+    boolean negative = false;
+    if (length > 0 && (text.charAt(0) == '-' || text.charAt(0) == '+')) {
+      negative = text.charAt(0) == '-';
+      index++;
+    }
+
+    long whole = 0;
+    long fraction = 0;
+    long scale = unit;
+    boolean point = false;
+    boolean digits = false;
+    int dropped = -1;
+    for (; index < length; index++) {
+      final char c = text.charAt(index);
+      if (c == '.' && !point) {
+        point = true;
+        continue;
+      }
+      if (c < '0' || c > '9')
+        throw new NumberFormatException(text);
+      final int digit = c - '0';
+      digits = true;
+      if (!point) {
+        // Leave room for the fraction and its rounding
+        if (whole > (Long.MAX_VALUE / unit - 1 - digit) / 10)
+          throw new NumberFormatException(text);
+        whole = whole * 10 + digit;
+      } else if (scale > 1) {
+        scale /= 10;
+        fraction += digit * scale;
+      } else if (dropped == -1)
+        dropped = digit;
+    }
+    if (!digits)
+      throw new NumberFormatException(text);
+
+    final long value = whole * unit + fraction + (dropped >= 5 ? 1 : 0);
+    return negative ? -value : value;
+  }
+
+  /**
+   * Convert cents to dollars
+   *
+   * @param cents
+   * @return dollars
+   */
+  public static double toDollars(final long cents) {
+    return (double) cents / CENTS;
+  }
+
+  /**
+   * Get amount of shares at price rounded half away from zero to the nearest
+   * cent
+   *
+   * @param price
+   *          millionths of a dollar per share, up to about 9 million
+   *          dollars
+   * @param shares
+   *          millionths of a share
+   * @return cents
+   */
+  public static long multiply(final long price, final long shares) {
+    // Multiply magnitudes and restore the sign without branching on it
+    final long sign = (price ^ shares) >> 63;
+    final long priceMagnitude = Math.abs(price);
+    final long sharesMagnitude = Math.abs(shares);
+    final long product;
+    // Product fits in 63 bits
+    if (Long.numberOfLeadingZeros(priceMagnitude)
+        + Long.numberOfLeadingZeros(sharesMagnitude) > 65)
+      product = (priceMagnitude * sharesMagnitude + SCALE / 2) / SCALE;
+    else
+      product = multiplySplit(priceMagnitude, sharesMagnitude);
+    return (product ^ sign) - sign;
+  }
+
+  /**
+   * Get shares amount buys at price rounded half up to the nearest millionth
+   * of a share
+   *
+   * @param cents
+   *          positive amount, up to about 9 trillion dollars
+   * @param price
+   *          positive millionths of a dollar per share, up to about 9 million
+   *          dollars
+   * @return millionths of a share, up to about 9 trillion shares
+   */
+  public static long divide(final long cents, final long price) {
+    final long micros = cents * MICROS_PER_CENT;
+    // The remainder is below the price so scaling it cannot overflow
+    return micros / price * MICROS + (micros % price * MICROS + price / 2)
+        / price;
+  }
+
+  /**
+   * Multiply magnitudes whose product overflows 63 bits by splitting them into
+   * whole cents and shares so no partial product overflows:
+   * <p>
+   * price * shares / SCALE = cents * whole + partCents * whole /
+   * MICROS_PER_CENT + price * partShares / SCALE
+   */
+  private static long multiplySplit(final long price, final long shares) {
+    final long cents = price / MICROS_PER_CENT;
+    final long partCents = price % MICROS_PER_CENT;
+    final long whole = shares / MICROS;
+    final long partShares = shares % MICROS;
+    final long high = partCents * whole;
+    final long low = price * partShares;
+    final long remainder = high % MICROS_PER_CENT * MICROS + low % SCALE;
+    long product = cents * whole + high / MICROS_PER_CENT + low / SCALE
+        + remainder / SCALE;
+    if (remainder % SCALE >= SCALE / 2)
+      product++;
+    return product;
+  }
+}
@@ -0,0 +1,294 @@
+/*
+ * Copyright 2012 Kevin Sawicki <kevinsawicki@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.kevinsawicki.hindstock;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Results of a portfolio of purchased lots stored in parallel primitive
+ * arrays indexed by lot along with the totals of every resolved lot
+ * <p>
+ * Prices and shares are held in millionths and amounts in cents with
+ * {@link Money}. Lots whose prices couldn't be resolved have a failure, their
+ * prices and amounts are {@link Float#NaN} and they are excluded from the
+ * totals.
+ */
+public class Portfolio {
+
+  private final List<Purchase> lots;
+
+  private final long[] cents;
+
+  private final long[] lotShares;
+
+  private final long[] buyPrices;
+
+  private final long[] sellPrices;
+
+  private final boolean[] priced;
+
+  private final long[] shares;
+
+  private final long[] costs;
+
+  private final long[] nets;
+
+  private final IOException[] failures;
+
+  private long totalCost;
+
+  private long totalNet;
+
+  private int resolved;
+
+  /**
+   * Create portfolio of lots with unresolved prices
+   *
+   * @param lots
+   */
+  Portfolio(final List<Purchase> lots) {
+    this.lots = Collections.unmodifiableList(lots);
+    final int count = lots.size();
+    cents = new long[count];
+    lotShares = new long[count];
+    for (int i = 0; i < count; i++) {
+      final Purchase lot = lots.get(i);
+      cents[i] = lot.cents;
+      lotShares[i] = lot.shares;
+    }
+    buyPrices = new long[count];
+    sellPrices = new long[count];
+    priced = new boolean[count];
+    shares = new long[count];
+    costs = new long[count];
+    nets = new long[count];
+    failures = new IOException[count];
+  }
+
+  /**
+   * Set the resolved prices of lot
+   *
+   * @param lot
+   * @param buyPrice
+   * @param sellPrice
+   */
+  void setPrices(final int lot, final float buyPrice, final float sellPrice) {
+    final long buy = Money.toMicros(buyPrice);
+    // Nothing can be bought with an amount at a zero price
+    if (buy <= 0 && cents[lot] > 0) {
+      setFailure(lot, new InvalidBuyDateException());
+      return;
+    }
+    buyPrices[lot] = buy;
+    sellPrices[lot] = Money.toMicros(sellPrice);
+    priced[lot] = true;
+  }
+
+  /**
+   * Set the failure resolving the prices of lot
+   *
+   * @param lot
+   * @param cause
+   */
+  void setFailure(final int lot, final IOException cause) {
+    buyPrices[lot] = 0;
+    sellPrices[lot] = 0;
+    priced[lot] = false;
+    failures[lot] = cause;
+  }
+
+  /**
+   * Compute the amounts of every lot and the totals in one pass over the
+   * parallel arrays without reading any lot objects
+   */
+  void compute() {
+    long cost = 0;
+    long net = 0;
+    int count = 0;
+    final int size = buyPrices.length;
+    for (int i = 0; i < size; i++) {
+      // Unresolved lots have zero prices so they add nothing to the totals
+      final boolean valid = priced[i];
+      final long buy = buyPrices[i];
+      final long amount = cents[i];
+      final long bought = amount > 0 ? Money.divide(amount, Math.max(buy, 1))
+          : lotShares[i];
+      final long lotCost = Money.multiply(buy, bought);
+      final long lotNet = Money.multiply(sellPrices[i] - buy, bought);
+      shares[i] = valid ? bought : 0;
+      costs[i] = lotCost;
+      nets[i] = lotNet;
+      cost += lotCost;
+      net += lotNet;
+      count += valid ? 1 : 0;
+    }
+    totalCost = cost;
+    totalNet = net;
+    resolved = count;
+  }
+
+  /**
+   * @return number of lots
+   */
+  public int size() {
+    return lots.size();
+  }
+
+  /**
+   * @return number of lots whose prices were resolved
+   */
+  public int getResolvedCount() {
+    return resolved;
+  }
+
+  /**
+   * Get lot
+   *
+   * @param lot
+   * @return purchase
+   */
+  public Purchase getLot(final int lot) {
+    return lots.get(lot);
+  }
+
+  /**
+   * Get share price lot was bought at
+   *
+   * @param lot
+   * @return price
+   */
+  public float getBuyPrice(final int lot) {
+    return priced[lot] ? (float) Money.fromMicros(buyPrices[lot]) : Float.NaN;
+  }
+
+  /**
+   * Get share price lot was sold at
+   *
+   * @param lot
+   * @return price
+   */
+  public float getSellPrice(final int lot) {
+    return priced[lot] ? (float) Money.fromMicros(sellPrices[lot])
+        : Float.NaN;
+  }
+
+  /**
+   * Get number of shares of lot
+   *
+   * @param lot
+   * @return shares
+   */
+  public double getShares(final int lot) {
+    return priced[lot] ? Money.fromMicros(shares[lot]) : Double.NaN;
+  }
+
+  /**
+   * Get amount paid for lot
+   *
+   * @param lot
+   * @return cost
+   */
+  public double getCost(final int lot) {
+    return priced[lot] ? Money.toDollars(costs[lot]) : Double.NaN;
+  }
+
+  /**
+   * Get amount paid for lot
+   *
+   * @param lot
+   * @return cost in cents or zero if the prices weren't resolved
+   */
+  public long getCostCents(final int lot) {
+    return costs[lot];
+  }
+
+  /**
+   * Get net amount of lot
+   *
+   * @param lot
+   * @return net amount
+   */
+  public double getNet(final int lot) {
+    return priced[lot] ? Money.toDollars(nets[lot]) : Double.NaN;
+  }
+
+  /**
+   * Get net amount of lot
+   *
+   * @param lot
+   * @return net amount in cents or zero if the prices weren't resolved
+   */
+  public long getNetCents(final int lot) {
+    return nets[lot];
+  }
+
+  /**
+   * Get return rate of lot
+   *
+   * @param lot
+   * @return rate
+   */
+  public double getRate(final int lot) {
+    return priced[lot] ? (double) nets[lot] / costs[lot] * 100 : Double.NaN;
+  }
+
+  /**
+   * Get failure resolving the prices of lot
+   *
+   * @param lot
+   * @return exception or null if the prices were resolved
+   */
+  public IOException getFailure(final int lot) {
+    return failures[lot];
+  }
+
+  /**
+   * @return amount paid for all resolved lots
+   */
+  public double getTotalCost() {
+    return Money.toDollars(totalCost);
+  }
+
+  /**
+   * @return amount paid for all resolved lots in cents
+   */
+  public long getTotalCostCents() {
+    return totalCost;
+  }
+
+  /**
+   * @return net amount of all resolved lots
+   */
+  public double getTotalNet() {
+    return Money.toDollars(totalNet);
+  }
+
+  /**
+   * @return net amount of all resolved lots in cents
+   */
+  public long getTotalNetCents() {
+    return totalNet;
+  }
+
+  /**
+   * @return return rate of all resolved lots
+   */
+  public double getTotalRate() {
+    return (double) totalNet / totalCost * 100;
+  }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright 2012 Kevin Sawicki <kevinsawicki@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.kevinsawicki.hindstock;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Calculator of the gain/loss of a portfolio of many lots
+ * <p>
+ * Lots are grouped by symbol and the bars of each symbol are fetched with a
+ * single request covering the windows of all its lots, with symbols fetched
+ * concurrently. Every lot is then resolved from the fetched {@link PriceSeries}
+ * without further requests, including searching {@link PriceResolver#MAX_WINDOW}
+ * days when the trading calendar's session has no bar.
+ */
+public class PortfolioCalculator {
+
+  private final ExecutorService executor;
+
+  private final PriceResolver resolver;
+
+  /**
+   * Create calculator with the default number of threads and rate
+   *
+   * @param cache
+   *          may be null to disable caching
+   */
+  public PortfolioCalculator(final BarCache cache) {
+    this(cache, BatchCalculator.DEFAULT_THREADS, BatchCalculator.DEFAULT_RATE);
+  }
+
+  /**
+   * Create calculator
+   *
+   * @param cache
+   *          may be null to disable caching
+   * @param threads
+   *          maximum number of symbols fetched at once
+   * @param permitsPerSecond
+   *          maximum number of HTTP requests per second
+   */
+  public PortfolioCalculator(final BarCache cache, final int threads,
+      final double permitsPerSecond) {
+    executor = Executors.newFixedThreadPool(threads);
+    resolver = new PriceResolver(cache, null, new TradingCalendar(), null,
+        new RateLimiter(permitsPerSecond));
+  }
+
+  /**
+   * @return number of HTTP requests made
+   */
+  public int getRequestCount() {
+    return resolver.getRequestCount();
+  }
+
+  /**
+   * Get the range covering the windows of all lots of a symbol
+   *
+   * @param lots
+   * @return range
+   */
+  private DayRange getRange(final List<Purchase> lots) {
+    int start = Integer.MAX_VALUE;
+    int end = Integer.MIN_VALUE;
+    for (Purchase lot : lots) {
+      start = Math.min(start, Math.min(lot.buyDay, lot.sellDay));
+      end = Math.max(end, Math.max(lot.buyDay, lot.sellDay));
+    }
+    return new DayRange(start - PriceResolver.MAX_WINDOW, end);
+  }
+
+  /**
+   * Get the newest bar in the window of day falling back to the wider window
+   *
+   * @param series
+   * @param day
+   * @return index or -1 if none
+   */
+  private int pick(final PriceSeries series, final int day) {
+    int index = series.pick(resolver.getWindow(day));
+    if (index < 0)
+      index = series.pick(new DayRange(day - PriceResolver.MAX_WINDOW, day));
+    return index;
+  }
+
+  /**
+   * Calculate the gain/loss of every lot and of the whole portfolio
+   *
+   * @param lots
+   * @return portfolio
+   * @throws InterruptedIOException
+   *           if the calling thread is interrupted, pending requests are
+   *           cancelled
+   */
+  public Portfolio calculate(final List<Purchase> lots)
+      throws InterruptedIOException {
+    final Map<String, List<Integer>> symbols = new LinkedHashMap<String, List<Integer>>();
+    for (int i = 0; i < lots.size(); i++) {
+      String symbol = lots.get(i).symbol;
+      List<Integer> indexes = symbols.get(symbol);
+      if (indexes == null) {
+        indexes = new ArrayList<Integer>();
+        symbols.put(symbol, indexes);
+      }
+      indexes.add(i);
+    }
+
+    final Portfolio portfolio = new Portfolio(lots);
+    FanOut.run(executor, symbols.keySet(), new FanOut.Task<String, PriceSeries>() {
+
+      @Override
+      public PriceSeries call(final String symbol) throws IOException {
+        List<Integer> indexes = symbols.get(symbol);
+        List<Purchase> symbolLots = new ArrayList<Purchase>(indexes.size());
+        for (int index : indexes)
+          symbolLots.add(lots.get(index));
+        DayRange range = getRange(symbolLots);
+        return new PriceSeries(symbol).add(range,
+            resolver.getBars(symbol, range));
+      }
+
+      @Override
+      public void onResult(final String symbol, final PriceSeries series) {
+        for (int index : symbols.get(symbol)) {
+          Purchase lot = lots.get(index);
+          int buy = pick(series, lot.buyDay);
+          int sell = pick(series, lot.sellDay);
+          if (buy < 0)
+            portfolio.setFailure(index, new InvalidBuyDateException());
+          else if (sell < 0)
+            portfolio.setFailure(index, new InvalidSellDateException());
+          else
+            portfolio.setPrices(index, series.getBuyPrice(buy),
+                series.getSellPrice(sell));
+        }
+      }
+
+      @Override
+      public void onFailure(final String symbol, final IOException cause) {
+        for (int index : symbols.get(symbol))
+          portfolio.setFailure(index, cause);
+      }
+    }, "Calculating portfolio");
+
+    portfolio.compute();
+    return portfolio;
+  }
+
+  /**
+   * Stop the worker threads, cancelling any symbols still being fetched
+   */
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+}
@@ -0,0 +1,498 @@
+/*
+ * Copyright 2012 Kevin Sawicki <kevinsawicki@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.kevinsawicki.hindstock;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import com.github.kevinsawicki.http.HttpRequest.HttpRequestException;
+import com.github.kevinsawicki.stocks.StockQuoteRequest;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Resolver of the buy and sell prices of a {@link Purchase}
+ * <p>
+ * The buy price is the open price and the sell price is the close price of the
+ * newest bar in the window ending on the buy and sell day. With a
+ * {@link TradingCalendar} each window starts at the last session on or before
+ * the day so exactly one bar is requested, and a window without a bar, such as
+ * during a trading halt, is searched again over {@link #MAX_WINDOW} days.
+ * Without a calendar each window is the week ending on the day. Both windows
+ * are requested together when they are close enough and concurrently on the
+ * configured executor otherwise. Windows already fetched into the configured
+ * {@link PriceStore} are answered from memory without a request.
+ */
+public class PriceResolver {
+
+  /**
+   * Maximum time in milliseconds to wait for both prices
+   */
+  public static final long TIMEOUT = 30 * 1000;
+
+  /**
+   * Number of days before the buy or sell day searched for a price when no
+   * trading calendar is configured
+   */
+  public static final int WINDOW = 7;
+
+  /**
+   * Number of days before the buy or sell day searched for a price when the
+   * trading calendar's session has no bar
+   */
+  public static final int MAX_WINDOW = 31;
+
+  private final BarCache cache;
+
+  private final PriceStore store;
+
+  private final TradingCalendar calendar;
+
+  private final ExecutorService executor;
+
+  private final RateLimiter limiter;
+
+  private final AtomicInteger requests = new AtomicInteger();
+
+  private final AtomicInteger saved = new AtomicInteger();
+
+  private final AtomicInteger retries = new AtomicInteger();
+
+  /**
+   * Create resolver
+   *
+   * @param cache
+   *          may be null to disable caching
+   * @param executor
+   *          may be null to request windows serially on the calling thread
+   * @param limiter
+   *          may be null to not limit the rate of requests
+   */
+  public PriceResolver(final BarCache cache, final ExecutorService executor,
+      final RateLimiter limiter) {
+    this(cache, null, null, executor, limiter);
+  }
+
+  /**
+   * Create resolver
+   *
+   * @param cache
+   *          may be null to disable caching
+   * @param store
+   *          may be null to not keep fetched bars in memory
+   * @param calendar
+   *          may be null to search the week before each day
+   * @param executor
+   *          may be null to request windows serially on the calling thread
+   * @param limiter
+   *          may be null to not limit the rate of requests
+   */
+  public PriceResolver(final BarCache cache, final PriceStore store,
+      final TradingCalendar calendar, final ExecutorService executor,
+      final RateLimiter limiter) {
+    this.cache = cache;
+    this.store = store;
+    this.calendar = calendar;
+    this.executor = executor;
+    this.limiter = limiter;
+  }
+
+  /**
+   * @return number of HTTP requests made
+   */
+  public int getRequestCount() {
+    return requests.get();
+  }
+
+  /**
+   * @return number of HTTP requests saved by merging windows or reading from
+   *         the cache compared to requesting each window separately
+   */
+  public int getSavedCount() {
+    return saved.get();
+  }
+
+  /**
+   * @return number of windows searched again over {@link #MAX_WINDOW} days
+   *         because the trading calendar's session had no bar
+   */
+  public int getRetryCount() {
+    return retries.get();
+  }
+
+  /**
+   * Get the window searched for the price on day
+   *
+   * @param day
+   * @return window
+   */
+  public DayRange getWindow(final int day) {
+    if (calendar != null)
+      return new DayRange(calendar.floor(day), day);
+    else
+      return new DayRange(day - WINDOW, day);
+  }
+
+  /**
+   * Get quote for purchase
+   *
+   * @param purchase
+   * @return quote
+   * @throws IOException
+   */
+  public Quote getQuote(final Purchase purchase) throws IOException {
+    float[] prices = getPrices(purchase);
+    float buyPrice = prices[0];
+    return new Quote(buyPrice, prices[1], getShares(purchase, buyPrice));
+  }
+
+  /**
+   * Get value curve of purchase on every trading day from the buy day through
+   * the sell day
+   * <p>
+   * All bars are read with a single request covering both windows unless they
+   * are already in the store.
+   *
+   * @param purchase
+   * @return curve
+   * @throws IOException
+   */
+  public ValueCurve getValueCurve(final Purchase purchase) throws IOException {
+    final String symbol = purchase.symbol;
+    final DayRange buyWindow = getWindow(purchase.buyDay);
+    final DayRange sellWindow = getWindow(purchase.sellDay);
+    final DayRange range = new DayRange(buyWindow.start, sellWindow.end);
+    PriceSeries series = store != null ? store.get(symbol) : null;
+    if (series != null && series.covers(range))
+      saved.incrementAndGet();
+    else
+      series = new PriceSeries(symbol).add(range, getBars(symbol, range));
+
+    if (calendar != null) {
+      if (series.pick(buyWindow) == -1)
+        series = widen(series, purchase.buyDay);
+      if (series.pick(sellWindow) == -1)
+        series = widen(series, purchase.sellDay);
+    }
+    // Widening may insert bars before either window so both indexes are
+    // picked from the final series
+    int buy = pick(series, buyWindow, purchase.buyDay);
+    if (buy < 0)
+      throw new InvalidBuyDateException();
+    int sell = pick(series, sellWindow, purchase.sellDay);
+    if (sell < buy)
+      throw new InvalidSellDateException();
+
+    return ValueCurve.create(series, buy, sell,
+        getShares(purchase, series.getBuyPrice(buy)));
+  }
+
+  /**
+   * Get shares held by purchase bought at price
+   *
+   * @param purchase
+   * @param buyPrice
+   * @return millionths of a share
+   * @throws InvalidBuyDateException
+   *           if an amount was bought at a price that rounds to zero
+   */
+  private static long getShares(final Purchase purchase, final float buyPrice)
+      throws InvalidBuyDateException {
+    if (purchase.cents <= 0)
+      return purchase.shares;
+    long price = Money.toMicros(buyPrice);
+    if (price <= 0)
+      throw new InvalidBuyDateException();
+    return Money.divide(purchase.cents, price);
+  }
+
+  /**
+   * Get the newest bar in window falling back to the {@link #MAX_WINDOW}
+   * days ending on day when a trading calendar is configured
+   *
+   * @param series
+   * @param window
+   * @param day
+   * @return index or -1 if none
+   */
+  private int pick(final PriceSeries series, final DayRange window,
+      final int day) {
+    int index = series.pick(window);
+    if (index == -1 && calendar != null)
+      index = series.pick(new DayRange(day - MAX_WINDOW, day));
+    return index;
+  }
+
+  /**
+   * Add the bars of the {@link #MAX_WINDOW} days ending on day to the series
+   * when the trading calendar's session had no bar
+   *
+   * @param series
+   * @param day
+   * @return series covering the wider window
+   * @throws IOException
+   */
+  private PriceSeries widen(final PriceSeries series, final int day)
+      throws IOException {
+    retries.incrementAndGet();
+    DayRange wide = new DayRange(day - MAX_WINDOW, day);
+    if (series.covers(wide))
+      return series;
+    return series.add(wide, getBars(series.getSymbol(), wide));
+  }
+
+  /**
+   * Get the buy and sell prices of purchase
+   * <p>
+   * When the buy and sell windows are close enough together a single request
+   * covering both is made, otherwise both windows are requested concurrently.
+   *
+   * @param purchase
+   * @return array of buy price and sell price
+   * @throws IOException
+   */
+  public float[] getPrices(final Purchase purchase) throws IOException {
+    final DayRange buyWindow = getWindow(purchase.buyDay);
+    final DayRange sellWindow = getWindow(purchase.sellDay);
+    float[] stored = getStoredPrices(purchase.symbol, buyWindow, sellWindow);
+    if (stored != null) {
+      saved.addAndGet(2);
+      return stored;
+    }
+
+    final List<DayRange> ranges = RequestPlanner.plan(
+        Arrays.asList(buyWindow, sellWindow), RequestPlanner.DEFAULT_MAX_GAP);
+    // Count only the requests for these windows, other threads share the
+    // resolver and retries are counted separately
+    final AtomicInteger made = new AtomicInteger();
+    try {
+      if (ranges.size() == 1) {
+        List<Bar> bars = getBars(purchase.symbol, ranges.get(0), made);
+        return new float[] { getBuyPrice(purchase.symbol, bars, buyWindow),
+            getSellPrice(purchase.symbol, bars, sellWindow) };
+      } else if (executor != null)
+        return getPricesConcurrently(purchase.symbol, buyWindow, sellWindow,
+            made);
+      else
+        return new float[] {
+            getBuyPrice(purchase.symbol,
+                getBars(purchase.symbol, buyWindow, made), buyWindow),
+            getSellPrice(purchase.symbol,
+                getBars(purchase.symbol, sellWindow, made), sellWindow) };
+    } finally {
+      saved.addAndGet(2 - made.get());
+    }
+  }
+
+  /**
+   * Get the buy and sell prices from the store when both windows are covered
+   *
+   * @return array of buy price and sell price or null if not stored
+   * @throws IOException
+   */
+  private float[] getStoredPrices(final String symbol,
+      final DayRange buyWindow, final DayRange sellWindow) throws IOException {
+    PriceSeries series = store != null ? store.get(symbol) : null;
+    if (series == null)
+      return null;
+    int buy = series.pick(buyWindow);
+    int sell = series.pick(sellWindow);
+    if (buy == -2 || sell == -2)
+      return null;
+    // Let the request path search a wider window
+    if (calendar != null && (buy == -1 || sell == -1))
+      return null;
+    if (buy == -1)
+      throw new InvalidBuyDateException();
+    if (sell == -1)
+      throw new InvalidSellDateException();
+    return new float[] { series.getBuyPrice(buy), series.getSellPrice(sell) };
+  }
+
+  /**
+   * Get the buy and sell prices concurrently
+   * <p>
+   * The first failure cancels the other request and is thrown immediately
+   * instead of waiting for the other request to complete.
+   *
+   * @return array of buy price and sell price
+   * @throws IOException
+   */
+  private float[] getPricesConcurrently(final String symbol,
+      final DayRange buyWindow, final DayRange sellWindow,
+      final AtomicInteger made) throws IOException {
+    CompletionService<Float> service = new ExecutorCompletionService<Float>(
+        executor);
+    Future<Float> buy = service.submit(new Callable<Float>() {
+
+      @Override
+      public Float call() throws Exception {
+        return getBuyPrice(symbol, getBars(symbol, buyWindow, made),
+            buyWindow);
+      }
+    });
+    Future<Float> sell = service.submit(new Callable<Float>() {
+
+      @Override
+      public Float call() throws Exception {
+        return getSellPrice(symbol, getBars(symbol, sellWindow, made),
+            sellWindow);
+      }
+    });
+
+    final long deadline = System.nanoTime() + MILLISECONDS.toNanos(TIMEOUT);
+    try {
+      for (int i = 0; i < 2; i++) {
+        long remaining = deadline - System.nanoTime();
+        Future<Float> completed = remaining > 0 ? service.poll(remaining,
+            NANOSECONDS) : null;
+        if (completed == null)
+          throw new InterruptedIOException("Requesting prices timed out after "
+              + TIMEOUT + "ms");
+        completed.get();
+      }
+      return new float[] { buy.get(), sell.get() };
+    } catch (InterruptedException e) {
+      throw new InterruptedIOException("Requesting prices interrupted");
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException)
+        throw (IOException) cause;
+      if (cause instanceof RuntimeException)
+        throw (RuntimeException) cause;
+      throw new IOException(cause.getMessage());
+    } finally {
+      buy.cancel(true);
+      sell.cancel(true);
+    }
+  }
+
+  /**
+   * Get bars in the range from the cache or by requesting them and adding them
+   * to the cache
+   *
+   * @param symbol
+   * @param range
+   * @return bars ordered newest first
+   * @throws IOException
+   */
+  public List<Bar> getBars(final String symbol, final DayRange range)
+      throws IOException {
+    return getBars(symbol, range, null);
+  }
+
+  /**
+   * Get bars in the range counting the HTTP request made, if any
+   *
+   * @param symbol
+   * @param range
+   * @param made
+   *          incremented when a request is made, may be null
+   * @return bars ordered newest first
+   * @throws IOException
+   */
+  private List<Bar> getBars(final String symbol, final DayRange range,
+      final AtomicInteger made) throws IOException {
+    List<Bar> bars = cache != null ? cache.getBars(symbol, range.start,
+        range.end) : null;
+    if (bars != null) {
+      remember(symbol, range, bars);
+      return bars;
+    }
+
+    if (limiter != null)
+      limiter.acquire();
+    requests.incrementAndGet();
+    if (made != null)
+      made.incrementAndGet();
+    bars = new ArrayList<Bar>();
+    StockQuoteRequest request = new StockQuoteRequest();
+    request.setStartDate(EpochDays.toDate(range.start))
+        .setEndDate(EpochDays.toDate(range.end)).setSymbol(symbol);
+    try {
+      while (request.next())
+        bars.add(new Bar(EpochDays.toDay(request.getDate()),
+            request.getOpen(), request.getHigh(), request.getLow(), request
+                .getClose(), request.getVolume()));
+    } catch (HttpRequestException e) {
+      throw e.getCause();
+    }
+    if (cache != null)
+      cache.putBars(symbol, range.start, range.end, bars);
+    remember(symbol, range, bars);
+    return bars;
+  }
+
+  private void remember(final String symbol, final DayRange range,
+      final List<Bar> bars) {
+    if (calendar != null)
+      calendar.learn(range, bars);
+    if (store == null)
+      return;
+    PriceSeries series = store.get(symbol);
+    if (series == null || !series.covers(range))
+      store.add(symbol, range, bars);
+  }
+
+  /**
+   * Get the newest bar in the window, searching {@link #MAX_WINDOW} days when
+   * the trading calendar's session has no bar
+   *
+   * @param symbol
+   * @param bars
+   * @param window
+   * @return bar or null if none found
+   * @throws IOException
+   */
+  private Bar pick(final String symbol, final List<Bar> bars,
+      final DayRange window) throws IOException {
+    Bar bar = RequestPlanner.pick(bars, window);
+    if (bar != null || calendar == null
+        || window.end - window.start >= MAX_WINDOW)
+      return bar;
+
+    retries.incrementAndGet();
+    DayRange wide = new DayRange(window.end - MAX_WINDOW, window.end);
+    return RequestPlanner.pick(getBars(symbol, wide), wide);
+  }
+
+  private float getBuyPrice(final String symbol, final List<Bar> bars,
+      final DayRange window) throws IOException {
+    Bar bar = pick(symbol, bars, window);
+    if (bar == null)
+      throw new InvalidBuyDateException();
+    return bar.getBuyPrice();
+  }
+
+  private float getSellPrice(final String symbol, final List<Bar> bars,
+      final DayRange window) throws IOException {
+    Bar bar = pick(symbol, bars, window);
+    if (bar == null)
+      throw new InvalidSellDateException();
+    return bar.getSellPrice();
+  }
+}
@@ -0,0 +1,366 @@
+/*
+ * Copyright 2012 Kevin Sawicki <kevinsawicki@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.kevinsawicki.hindstock;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Daily price bars of a symbol stored in parallel primitive arrays ordered by
+ * day along with the day ranges the bars were fetched for
+ * <p>
+ * A series is immutable, {@link #add(DayRange, List)} returns a new series.
+ * Each bar takes {@link #BYTES_PER_BAR} bytes compared to the object header,
+ * fields, and list slot of a {@link Bar}.
+ */
+public class PriceSeries {
+
+  /**
+   * Number of bytes stored for each bar
+   */
+  public static final int BYTES_PER_BAR = 4 + 4 * 4 + 8;
+
+  private static final int[] NO_DAYS = new int[0];
+
+  private static final float[] NO_PRICES = new float[0];
+
+  private static final long[] NO_VOLUMES = new long[0];
+
+  private static final Comparator<Bar> BY_DAY = new Comparator<Bar>() {
+
+    @Override
+    public int compare(final Bar bar1, final Bar bar2) {
+      return bar1.day < bar2.day ? -1 : bar1.day == bar2.day ? 0 : 1;
+    }
+  };
+
+  private static int[] trim(final int[] array, final int length) {
+    int[] trimmed = new int[length];
+    System.arraycopy(array, 0, trimmed, 0, length);
+    return trimmed;
+  }
+
+  private static float[] trim(final float[] array, final int length) {
+    float[] trimmed = new float[length];
+    System.arraycopy(array, 0, trimmed, 0, length);
+    return trimmed;
+  }
+
+  private static long[] trim(final long[] array, final int length) {
+    long[] trimmed = new long[length];
+    System.arraycopy(array, 0, trimmed, 0, length);
+    return trimmed;
+  }
+
+  private final String symbol;
+
+  private final int[] days;
+
+  private final float[] open;
+
+  private final float[] high;
+
+  private final float[] low;
+
+  private final float[] close;
+
+  private final long[] volume;
+
+  private final int[] coveredStarts;
+
+  private final int[] coveredEnds;
+
+  /**
+   * Create empty series
+   *
+   * @param symbol
+   */
+  public PriceSeries(final String symbol) {
+    this(symbol, NO_DAYS, NO_PRICES, NO_PRICES, NO_PRICES, NO_PRICES,
+        NO_VOLUMES, NO_DAYS, NO_DAYS);
+  }
+
+  private PriceSeries(final String symbol, final int[] days,
+      final float[] open, final float[] high, final float[] low,
+      final float[] close, final long[] volume, final int[] coveredStarts,
+      final int[] coveredEnds) {
+    this.symbol = symbol;
+    this.days = days;
+    this.open = open;
+    this.high = high;
+    this.low = low;
+    this.close = close;
+    this.volume = volume;
+    this.coveredStarts = coveredStarts;
+    this.coveredEnds = coveredEnds;
+  }
+
+  /**
+   * @return symbol
+   */
+  public String getSymbol() {
+    return symbol;
+  }
+
+  /**
+   * @return number of bars
+   */
+  public int size() {
+    return days.length;
+  }
+
+  /**
+   * Get epoch day of bar
+   *
+   * @param index
+   * @return day
+   */
+  public int getDay(final int index) {
+    return days[index];
+  }
+
+  /**
+   * Get opening price of bar
+   *
+   * @param index
+   * @return price
+   */
+  public float getOpen(final int index) {
+    return open[index];
+  }
+
+  /**
+   * Get highest price of bar
+   *
+   * @param index
+   * @return price
+   */
+  public float getHigh(final int index) {
+    return high[index];
+  }
+
+  /**
+   * Get lowest price of bar
+   *
+   * @param index
+   * @return price
+   */
+  public float getLow(final int index) {
+    return low[index];
+  }
+
+  /**
+   * Get closing price of bar
+   *
+   * @param index
+   * @return price
+   */
+  public float getClose(final int index) {
+    return close[index];
+  }
+
+  /**
+   * Get number of shares traded in bar
+   *
+   * @param index
+   * @return volume
+   */
+  public long getVolume(final int index) {
+    return volume[index];
+  }
+
+  /**
+   * Get price a buy in bar is made at, the opening price or the closing price
+   * when no opening price is available
+   *
+   * @param index
+   * @return price
+   */
+  public float getBuyPrice(final int index) {
+    return open[index] > 0.0F ? open[index] : close[index];
+  }
+
+  /**
+   * Get price a sell in bar is made at, the closing price or the opening price
+   * when no closing price is available
+   *
+   * @param index
+   * @return price
+   */
+  public float getSellPrice(final int index) {
+    return close[index] > 0.0F ? close[index] : open[index];
+  }
+
+  /**
+   * Get the last bar on or before day
+   *
+   * @param day
+   * @return index or -1 if no bar is on or before day
+   */
+  public int floor(final int day) {
+    int index = Arrays.binarySearch(days, day);
+    return index >= 0 ? index : -index - 2;
+  }
+
+  /**
+   * Get the first bar on or after day
+   *
+   * @param day
+   * @return index or {@link #size()} if no bar is on or after day
+   */
+  public int ceiling(final int day) {
+    int index = Arrays.binarySearch(days, day);
+    return index >= 0 ? index : -index - 1;
+  }
+
+  /**
+   * Get the last bar inside the window when all days of the window have been
+   * fetched
+   *
+   * @param window
+   * @return index, -1 if the window is covered but has no bars, or -2 if the
+   *         window is not covered
+   */
+  public int pick(final DayRange window) {
+    if (!covers(window))
+      return -2;
+    int index = floor(window.end);
+    return index >= 0 && days[index] >= window.start ? index : -1;
+  }
+
+  /**
+   * Are all days of the range covered by the ranges the bars were fetched for?
+   *
+   * @param range
+   * @return true if covered, false otherwise
+   */
+  public boolean covers(final DayRange range) {
+    int index = Arrays.binarySearch(coveredStarts, range.start);
+    if (index < 0)
+      index = -index - 2;
+    return index >= 0 && coveredEnds[index] >= range.end;
+  }
+
+  /**
+   * Get approximate number of bytes used by the arrays of the series
+   *
+   * @return size in bytes
+   */
+  public long getSizeInBytes() {
+    return (long) days.length * BYTES_PER_BAR + coveredStarts.length * 8L;
+  }
+
+  /**
+   * Create series with the bars fetched for the range
+   * <p>
+   * Bars already in the series inside the range are replaced by the given
+   * bars.
+   *
+   * @param range
+   * @param bars
+   *          in any order
+   * @return new series
+   */
+  public PriceSeries add(final DayRange range, final List<Bar> bars) {
+    Bar[] added = new Bar[bars.size()];
+    int length = 0;
+    for (Bar bar : bars)
+      if (range.contains(bar.day))
+        added[length++] = bar;
+    Arrays.sort(added, 0, length, BY_DAY);
+
+    final int capacity = days.length + length;
+    int[] newDays = new int[capacity];
+    float[] newOpen = new float[capacity];
+    float[] newHigh = new float[capacity];
+    float[] newLow = new float[capacity];
+    float[] newClose = new float[capacity];
+    long[] newVolume = new long[capacity];
+    int count = 0;
+    int i = 0;
+    int j = 0;
+    while (i < days.length || j < length) {
+      // Skip existing bars replaced by the fetched range
+      if (i < days.length && range.contains(days[i])) {
+        i++;
+        continue;
+      }
+      if (j < length && count > 0 && newDays[count - 1] == added[j].day) {
+        j++;
+        continue;
+      }
+      if (j == length || (i < days.length && days[i] < added[j].day)) {
+        newDays[count] = days[i];
+        newOpen[count] = open[i];
+        newHigh[count] = high[i];
+        newLow[count] = low[i];
+        newClose[count] = close[i];
+        newVolume[count] = volume[i];
+        i++;
+      } else {
+        Bar bar = added[j++];
+        newDays[count] = bar.day;
+        newOpen[count] = bar.open;
+        newHigh[count] = bar.high;
+        newLow[count] = bar.low;
+        newClose[count] = bar.close;
+        newVolume[count] = bar.volume;
+      }
+      count++;
+    }
+    if (count < capacity) {
+      newDays = trim(newDays, count);
+      newOpen = trim(newOpen, count);
+      newHigh = trim(newHigh, count);
+      newLow = trim(newLow, count);
+      newClose = trim(newClose, count);
+      newVolume = trim(newVolume, count);
+    }
+
+    // Insert the range into the sorted covered ranges merging any it touches
+    int ranges = coveredStarts.length;
+    int[] starts = new int[ranges + 1];
+    int[] ends = new int[ranges + 1];
+    int merged = 0;
+    int start = range.start;
+    int end = range.end;
+    boolean inserted = false;
+    for (int k = 0; k < ranges; k++)
+      if ((long) coveredEnds[k] + 1 < start) {
+        starts[merged] = coveredStarts[k];
+        ends[merged++] = coveredEnds[k];
+      } else if ((long) end + 1 < coveredStarts[k]) {
+        if (!inserted) {
+          starts[merged] = start;
+          ends[merged++] = end;
+          inserted = true;
+        }
+        starts[merged] = coveredStarts[k];
+        ends[merged++] = coveredEnds[k];
+      } else {
+        start = Math.min(start, coveredStarts[k]);
+        end = Math.max(end, coveredEnds[k]);
+      }
+    if (!inserted) {
+      starts[merged] = start;
+      ends[merged++] = end;
+    }
+
+    return new PriceSeries(symbol, newDays, newOpen, newHigh, newLow,
+        newClose, newVolume, trim(starts, merged), trim(ends, merged));
+  }
+}
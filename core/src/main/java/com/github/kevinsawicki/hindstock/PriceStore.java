@@ -0,0 +1,123 @@
+/*
+ * Copyright 2012 Kevin Sawicki <kevinsawicki@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.kevinsawicki.hindstock;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * In-memory store of a {@link PriceSeries} per symbol shared across
+ * calculations
+ * <p>
+ * Once the series use more than the maximum number of bytes the least
+ * recently used series are evicted. At {@link PriceSeries#BYTES_PER_BAR} bytes
+ * per bar, twenty years of daily bars for a symbol take about 140KB.
+ */
+public class PriceStore {
+
+  /**
+   * Default maximum number of bytes used by all series
+   */
+  public static final long DEFAULT_MAX_BYTES = 32 * 1024 * 1024;
+
+  private final LinkedHashMap<String, PriceSeries> series = new LinkedHashMap<String, PriceSeries>(
+      16, 0.75F, true);
+
+  private final long maxBytes;
+
+  private long bytes;
+
+  private int evictions;
+
+  /**
+   * Create store using at most the default maximum number of bytes
+   */
+  public PriceStore() {
+    this(DEFAULT_MAX_BYTES);
+  }
+
+  /**
+   * Create store
+   *
+   * @param maxBytes
+   */
+  public PriceStore(final long maxBytes) {
+    this.maxBytes = maxBytes;
+  }
+
+  /**
+   * Get series of symbol
+   *
+   * @param symbol
+   * @return series or null if no bars are stored for the symbol
+   */
+  public synchronized PriceSeries get(final String symbol) {
+    return series.get(symbol);
+  }
+
+  /**
+   * Add the bars fetched for the symbol between the range
+   *
+   * @param symbol
+   * @param range
+   * @param bars
+   * @return updated series
+   */
+  public synchronized PriceSeries add(final String symbol,
+      final DayRange range, final List<Bar> bars) {
+    PriceSeries current = series.get(symbol);
+    if (current != null)
+      bytes -= current.getSizeInBytes();
+    else
+      current = new PriceSeries(symbol);
+    PriceSeries updated = current.add(range, bars);
+    series.put(symbol, updated);
+    bytes += updated.getSizeInBytes();
+
+    Iterator<PriceSeries> eldest = series.values().iterator();
+    while (bytes > maxBytes && eldest.hasNext()) {
+      PriceSeries evicted = eldest.next();
+      if (evicted == updated)
+        break;
+      eldest.remove();
+      bytes -= evicted.getSizeInBytes();
+      evictions++;
+    }
+    return updated;
+  }
+
+  /**
+   * @return number of symbols stored
+   */
+  public synchronized int size() {
+    return series.size();
+  }
+
+  /**
+   * @return approximate number of bytes used by all series
+   */
+  public synchronized long getSizeInBytes() {
+    return bytes;
+  }
+
+  /**
+   * @return number of series evicted
+   */
+  public synchronized int getEvictionCount() {
+    return evictions;
+  }
+}
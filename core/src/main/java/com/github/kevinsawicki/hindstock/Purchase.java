@@ -0,0 +1,75 @@
+/*
+ * Copyright 2012 Kevin Sawicki <kevinsawicki@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.kevinsawicki.hindstock;
+
+import static java.util.Locale.US;
+
+/**
+ * Purchase of either a number of shares or a dollar amount of a stock bought
+ * and sold on given days
+ */
+public class Purchase {
+
+  /**
+   * Stock symbol
+   */
+  public final String symbol;
+
+  /**
+   * Number of shares bought in millionths, ignored when {@link #cents} is
+   * positive
+   */
+  public final long shares;
+
+  /**
+   * Amount bought in cents, ignored when not positive
+   */
+  public final long cents;
+
+  /**
+   * Epoch day bought on
+   */
+  public final int buyDay;
+
+  /**
+   * Epoch day sold on
+   */
+  public final int sellDay;
+
+  /**
+   * Create purchase
+   *
+   * @param symbol
+   * @param shares
+   *          millionths of a share
+   * @param cents
+   * @param buyDay
+   * @param sellDay
+   */
+  public Purchase(final String symbol, final long shares, final long cents,
+      final int buyDay, final int sellDay) {
+    this.symbol = symbol.toUpperCase(US);
+    this.shares = shares;
+    this.cents = cents;
+    this.buyDay = buyDay;
+    this.sellDay = sellDay;
+  }
+
+  @Override
+  public String toString() {
+    return symbol + ' ' + buyDay + '-' + sellDay;
+  }
+}
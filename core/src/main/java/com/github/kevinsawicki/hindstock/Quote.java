@@ -0,0 +1,130 @@
+/*
+ * Copyright 2012 Kevin Sawicki <kevinsawicki@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.kevinsawicki.hindstock;
+
+import java.io.Serializable;
+
+/**
+ * Quote containing price and share amount
+ * <p>
+ * The cost and net amount are calculated once in whole cents with
+ * {@link Money} from the prices converted to millionths and the shares held
+ * in millionths, so they stay exact to the cent for any amount the quote
+ * screen displays.
+ */
+public class Quote implements Serializable {
+
+  private static final long serialVersionUID = -2391452377465327620L;
+
+  /**
+   * Share price bought at
+   */
+  public final float buyPrice;
+
+  /**
+   * Share price sold at
+   */
+  public final float sellPrice;
+
+  /**
+   * Number of shares in millionths
+   */
+  public final long shares;
+
+  private final long costCents;
+
+  private final long netCents;
+
+  /**
+   * Create stock quote
+   *
+   * @param buyPrice
+   * @param sellPrice
+   * @param shares
+   *          millionths of a share
+   */
+  public Quote(final float buyPrice, final float sellPrice, final long shares) {
+    this.buyPrice = buyPrice;
+    this.sellPrice = sellPrice;
+    this.shares = shares;
+    long buyMicros = Money.toMicros(buyPrice);
+    costCents = Money.multiply(buyMicros, shares);
+    netCents = Money.multiply(Money.toMicros(sellPrice) - buyMicros, shares);
+  }
+
+  /**
+   * Create stock quote from prices in millionths
+   *
+   * @param buyPrice
+   *          millionths of a dollar per share
+   * @param sellPrice
+   *          millionths of a dollar per share
+   * @param shares
+   *          millionths of a share
+   */
+  public Quote(final long buyPrice, final long sellPrice, final long shares) {
+    this.buyPrice = (float) Money.fromMicros(buyPrice);
+    this.sellPrice = (float) Money.fromMicros(sellPrice);
+    this.shares = shares;
+    costCents = Money.multiply(buyPrice, shares);
+    netCents = Money.multiply(sellPrice - buyPrice, shares);
+  }
+
+  /**
+   * Get amount paid for shares
+   *
+   * @return purchase cost in cents
+   */
+  public long getCostCents() {
+    return costCents;
+  }
+
+  /**
+   * Get net proceeds
+   *
+   * @return net amount in cents
+   */
+  public long getNetCents() {
+    return netCents;
+  }
+
+  /**
+   * Get amount paid for shares
+   *
+   * @return purchase cost
+   */
+  public double getCost() {
+    return Money.toDollars(costCents);
+  }
+
+  /**
+   * Get net process
+   *
+   * @return net amount
+   */
+  public double getNet() {
+    return Money.toDollars(netCents);
+  }
+
+  /**
+   * Get return rate
+   *
+   * @return rate
+   */
+  public double getRate() {
+    return (double) netCents / costCents * 100;
+  }
+}
\ No newline at end of file
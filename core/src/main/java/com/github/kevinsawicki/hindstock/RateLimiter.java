@@ -0,0 +1,65 @@
+/*
+ * Copyright 2012 Kevin Sawicki <kevinsawicki@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.kevinsawicki.hindstock;
+
+import java.io.InterruptedIOException;
+
+/**
+ * Limiter that spaces out permits so no more than a fixed number are handed
+ * out per second
+ */
+public class RateLimiter {
+
+  private final long interval;
+
+  private long next;
+
+  /**
+   * Create limiter
+   *
+   * @param permitsPerSecond
+   */
+  public RateLimiter(final double permitsPerSecond) {
+    if (permitsPerSecond <= 0)
+      throw new IllegalArgumentException("Permits per second must be positive");
+
+    interval = (long) (1000000000L / permitsPerSecond);
+    next = System.nanoTime();
+  }
+
+  /**
+   * Block until a permit is available
+   *
+   * @throws InterruptedIOException
+   */
+  public void acquire() throws InterruptedIOException {
+    long wait;
+    synchronized (this) {
+      long now = System.nanoTime();
+      // Compare the difference since nanoTime values may be negative or wrap
+      if (next - now < 0)
+        next = now;
+      wait = next - now;
+      next += interval;
+    }
+    if (wait > 0)
+      try {
+        Thread.sleep(wait / 1000000L, (int) (wait % 1000000L));
+      } catch (InterruptedException e) {
+        throw new InterruptedIOException("Waiting for permit interrupted");
+      }
+  }
+}
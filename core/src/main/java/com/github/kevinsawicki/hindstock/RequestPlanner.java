@@ -0,0 +1,78 @@
+/*
+ * Copyright 2012 Kevin Sawicki <kevinsawicki@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.kevinsawicki.hindstock;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Planner of price requests that merges overlapping or nearby date windows so
+ * they can be answered by a single request
+ */
+public class RequestPlanner {
+
+  /**
+   * Default maximum number of days between two windows for them to be merged
+   */
+  public static final int DEFAULT_MAX_GAP = 92;
+
+  /**
+   * Merge the windows into as few ranges as possible where windows separated
+   * by no more than the maximum gap are covered by the same range
+   *
+   * @param windows
+   * @param maxGap
+   * @return ranges sorted by start day
+   */
+  public static List<DayRange> plan(final Collection<DayRange> windows,
+      final int maxGap) {
+    List<DayRange> sorted = new ArrayList<DayRange>(windows);
+    Collections.sort(sorted);
+
+    List<DayRange> ranges = new ArrayList<DayRange>(sorted.size());
+    DayRange current = null;
+    for (DayRange window : sorted)
+      if (current == null)
+        current = window;
+      else if (window.start - current.end <= maxGap)
+        current = new DayRange(current.start, Math.max(current.end,
+            window.end));
+      else {
+        ranges.add(current);
+        current = window;
+      }
+    if (current != null)
+      ranges.add(current);
+    return ranges;
+  }
+
+  /**
+   * Get the newest bar inside the window
+   *
+   * @param bars
+   *          ordered newest first
+   * @param window
+   * @return bar or null if none in window
+   */
+  public static Bar pick(final List<Bar> bars, final DayRange window) {
+    for (Bar bar : bars)
+      if (window.contains(bar.day))
+        return bar;
+    return null;
+  }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2012 Kevin Sawicki <kevinsawicki@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.kevinsawicki.hindstock;
+
+import java.util.Arrays;
+
+/**
+ * Index of the sections of a list sorted by section, such as the first letter
+ * of each stock symbol, and the position each section starts at
+ * <p>
+ * The section of every position is computed up front so both lookups are
+ * constant time array reads.
+ */
+public class SectionIndex {
+
+  private final String[] sections;
+
+  private final int[] starts;
+
+  private final short[] positions;
+
+  private final int count;
+
+  /**
+   * Create index from the number of items in each section
+   *
+   * @param sections
+   * @param counts
+   */
+  public SectionIndex(final String[] sections, final int[] counts) {
+    if (sections.length != counts.length)
+      throw new IllegalArgumentException("Section and count lengths differ");
+    if (sections.length > Short.MAX_VALUE)
+      throw new IllegalArgumentException("Too many sections: "
+          + sections.length);
+
+    this.sections = sections;
+    starts = new int[counts.length];
+    int total = 0;
+    for (int i = 0; i < counts.length; i++) {
+      starts[i] = total;
+      total += counts[i];
+    }
+    count = total;
+
+    positions = new short[count];
+    for (int i = 0; i < counts.length; i++)
+      Arrays.fill(positions, starts[i], starts[i] + counts[i], (short) i);
+  }
+
+  /**
+   * @return sections
+   */
+  public String[] getSections() {
+    return sections;
+  }
+
+  /**
+   * @return total number of items in all sections
+   */
+  public int getCount() {
+    return count;
+  }
+
+  /**
+   * Get position of the first item in section
+   *
+   * @param section
+   * @return position
+   */
+  public int getPositionForSection(final int section) {
+    if (section < 0 || starts.length == 0)
+      return 0;
+    if (section >= starts.length)
+      return count;
+    return starts[section];
+  }
+
+  /**
+   * Get section containing position
+   *
+   * @param position
+   * @return section
+   */
+  public int getSectionForPosition(final int position) {
+    if (count == 0 || position < 0)
+      return 0;
+    if (position >= count)
+      return positions[count - 1];
+    return positions[position];
+  }
+}
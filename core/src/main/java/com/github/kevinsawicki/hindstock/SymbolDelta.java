@@ -0,0 +1,287 @@
+/*
+ * Copyright 2012 Kevin Sawicki <kevinsawicki@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.kevinsawicki.hindstock;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Changes between two versions of the symbol list
+ * <p>
+ * Stocks are removed, updated, or added. An update changes the name or
+ * exchange of a symbol or renames a symbol whose name and exchange stayed the
+ * same, so rows for existing stocks can be modified in place instead of being
+ * deleted and inserted again.
+ */
+public class SymbolDelta {
+
+  /**
+   * Magic number at the start of the file
+   */
+  public static final int MAGIC = 0x53594d44;
+
+  /**
+   * Version of the format
+   */
+  public static final int FORMAT = 1;
+
+  /**
+   * Stock added or updated by a delta
+   */
+  public static class Entry {
+
+    /**
+     * Symbol before the update, same as {@link #symbol} unless renamed
+     */
+    public final String previous;
+
+    /**
+     * Symbol
+     */
+    public final String symbol;
+
+    /**
+     * Name
+     */
+    public final String name;
+
+    /**
+     * Exchange
+     */
+    public final String exchange;
+
+    /**
+     * Create entry
+     *
+     * @param previous
+     * @param symbol
+     * @param name
+     * @param exchange
+     */
+    public Entry(final String previous, final String symbol,
+        final String name, final String exchange) {
+      this.previous = previous;
+      this.symbol = symbol;
+      this.name = name;
+      this.exchange = exchange;
+    }
+  }
+
+  /**
+   * Compute the delta between two symbol lists
+   *
+   * @param from
+   * @param fromVersion
+   * @param to
+   * @param toVersion
+   * @return delta
+   */
+  public static SymbolDelta diff(final SymbolFile from, final int fromVersion,
+      final SymbolFile to, final int toVersion) {
+    List<Integer> removedRows = new ArrayList<Integer>();
+    List<Integer> addedRows = new ArrayList<Integer>();
+    List<Entry> updated = new ArrayList<Entry>();
+
+    // Walk both sorted lists together
+    int i = 0;
+    int j = 0;
+    while (i < from.size() || j < to.size()) {
+      int compare;
+      if (i == from.size())
+        compare = 1;
+      else if (j == to.size())
+        compare = -1;
+      else
+        compare = from.getSymbol(i).compareTo(to.getSymbol(j));
+      if (compare < 0)
+        removedRows.add(i++);
+      else if (compare > 0)
+        addedRows.add(j++);
+      else {
+        if (!from.getName(i).equals(to.getName(j))
+            || !from.getExchange(i).equals(to.getExchange(j)))
+          updated.add(new Entry(from.getSymbol(i), to.getSymbol(j),
+              to.getName(j), to.getExchange(j)));
+        i++;
+        j++;
+      }
+    }
+
+    // Removed and added stocks with the same unique name and exchange are
+    // renamed symbols
+    Map<String, Integer> removedKeys = new HashMap<String, Integer>();
+    for (int row : removedRows) {
+      String key = from.getName(row) + '\n' + from.getExchange(row);
+      removedKeys.put(key, removedKeys.containsKey(key) ? -1 : row);
+    }
+    Map<String, Integer> addedKeys = new HashMap<String, Integer>();
+    for (int row : addedRows) {
+      String key = to.getName(row) + '\n' + to.getExchange(row);
+      addedKeys.put(key, addedKeys.containsKey(key) ? -1 : row);
+    }
+
+    List<String> removed = new ArrayList<String>();
+    for (int row : removedRows) {
+      String key = from.getName(row) + '\n' + from.getExchange(row);
+      Integer added = addedKeys.get(key);
+      if (added != null && added >= 0 && removedKeys.get(key) >= 0)
+        updated.add(new Entry(from.getSymbol(row), to.getSymbol(added),
+            to.getName(added), to.getExchange(added)));
+      else
+        removed.add(from.getSymbol(row));
+    }
+    List<Entry> added = new ArrayList<Entry>();
+    for (int row : addedRows) {
+      String key = to.getName(row) + '\n' + to.getExchange(row);
+      Integer removedRow = removedKeys.get(key);
+      if (removedRow == null || removedRow < 0 || addedKeys.get(key) < 0)
+        added.add(new Entry(null, to.getSymbol(row), to.getName(row),
+            to.getExchange(row)));
+    }
+    return new SymbolDelta(fromVersion, toVersion, removed, updated, added);
+  }
+
+  /**
+   * Read delta from stream
+   *
+   * @param input
+   * @return delta
+   * @throws IOException
+   */
+  public static SymbolDelta read(final InputStream input) throws IOException {
+    DataInputStream data = new DataInputStream(input);
+    if (data.readInt() != MAGIC)
+      throw new IOException("Not a symbol delta");
+    int format = data.readInt();
+    if (format != FORMAT)
+      throw new IOException("Unsupported symbol delta format: " + format);
+    int fromVersion = data.readInt();
+    int toVersion = data.readInt();
+
+    int count = data.readInt();
+    List<String> removed = new ArrayList<String>(count);
+    for (int i = 0; i < count; i++)
+      removed.add(data.readUTF());
+    count = data.readInt();
+    List<Entry> updated = new ArrayList<Entry>(count);
+    for (int i = 0; i < count; i++)
+      updated.add(new Entry(data.readUTF(), data.readUTF(),
+          data.readUTF(), data.readUTF()));
+    count = data.readInt();
+    List<Entry> added = new ArrayList<Entry>(count);
+    for (int i = 0; i < count; i++) {
+      String symbol = data.readUTF();
+      added.add(new Entry(null, symbol, data.readUTF(), data.readUTF()));
+    }
+    return new SymbolDelta(fromVersion, toVersion, removed, updated, added);
+  }
+
+  /**
+   * Version of the symbol list the delta applies to
+   */
+  public final int fromVersion;
+
+  /**
+   * Version of the symbol list after applying the delta
+   */
+  public final int toVersion;
+
+  /**
+   * Symbols removed
+   */
+  public final List<String> removed;
+
+  /**
+   * Stocks updated
+   */
+  public final List<Entry> updated;
+
+  /**
+   * Stocks added
+   */
+  public final List<Entry> added;
+
+  /**
+   * Create delta
+   *
+   * @param fromVersion
+   * @param toVersion
+   * @param removed
+   * @param updated
+   * @param added
+   */
+  public SymbolDelta(final int fromVersion, final int toVersion,
+      final List<String> removed, final List<Entry> updated,
+      final List<Entry> added) {
+    this.fromVersion = fromVersion;
+    this.toVersion = toVersion;
+    this.removed = Collections.unmodifiableList(removed);
+    this.updated = Collections.unmodifiableList(updated);
+    this.added = Collections.unmodifiableList(added);
+  }
+
+  /**
+   * Write delta to stream
+   *
+   * @param output
+   * @throws IOException
+   */
+  public void write(final OutputStream output) throws IOException {
+    DataOutputStream data = new DataOutputStream(output);
+    data.writeInt(MAGIC);
+    data.writeInt(FORMAT);
+    data.writeInt(fromVersion);
+    data.writeInt(toVersion);
+    data.writeInt(removed.size());
+    for (String symbol : removed)
+      data.writeUTF(symbol);
+    data.writeInt(updated.size());
+    for (Entry entry : updated) {
+      data.writeUTF(entry.previous);
+      data.writeUTF(entry.symbol);
+      data.writeUTF(entry.name);
+      data.writeUTF(entry.exchange);
+    }
+    data.writeInt(added.size());
+    for (Entry entry : added) {
+      data.writeUTF(entry.symbol);
+      data.writeUTF(entry.name);
+      data.writeUTF(entry.exchange);
+    }
+    data.flush();
+  }
+
+  /**
+   * @return total number of removed, updated, and added stocks
+   */
+  public int size() {
+    return removed.size() + updated.size() + added.size();
+  }
+
+  @Override
+  public String toString() {
+    return fromVersion + "->" + toVersion + " removed: " + removed.size()
+        + " updated: " + updated.size() + " added: " + added.size();
+  }
+}
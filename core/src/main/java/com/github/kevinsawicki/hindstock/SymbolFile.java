@@ -0,0 +1,301 @@
+/*
+ * Copyright 2012 Kevin Sawicki <kevinsawicki@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.kevinsawicki.hindstock;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compact binary list of stocks sorted by symbol
+ * <p>
+ * The file starts with a header of the magic number, format version, and
+ * number of stocks followed by a table of the distinct exchange names. The
+ * stocks are then stored by column: an exchange code byte for every stock, a
+ * symbol length byte for every stock, a name length byte for every stock, and
+ * finally the string table of every UTF-8 encoded symbol followed by every
+ * name. Storing like values together keeps the file about as compressible as
+ * the text symbol list. All integers are big-endian.
+ * <p>
+ * Opening a file builds an index of the string table offsets by summing the
+ * lengths. Strings are decoded only when requested so a buffer can be read or
+ * memory mapped and used without parsing every record.
+ */
+public class SymbolFile {
+
+  /**
+   * Magic number at the start of the file
+   */
+  public static final int MAGIC = 0x53594d42;
+
+  /**
+   * Version of the format
+   */
+  public static final int VERSION = 1;
+
+  private static final String CHARSET = "UTF-8";
+
+  /**
+   * Write stocks to a stream
+   *
+   * @param output
+   * @param symbols
+   *          sorted symbols of at most 255 bytes
+   * @param names
+   *          names of at most 255 bytes
+   * @param exchanges
+   * @throws IOException
+   */
+  public static void write(final OutputStream output, final String[] symbols,
+      final String[] names, final String[] exchanges) throws IOException {
+    final int count = symbols.length;
+    List<String> exchangeTable = new ArrayList<String>();
+    byte[] codes = new byte[count];
+    byte[] symbolLengths = new byte[count];
+    byte[] nameLengths = new byte[count];
+    ByteArrayOutputStream symbolTable = new ByteArrayOutputStream(count * 4);
+    ByteArrayOutputStream nameTable = new ByteArrayOutputStream(count * 32);
+    for (int i = 0; i < count; i++) {
+      if (i > 0 && symbols[i - 1].compareTo(symbols[i]) >= 0)
+        throw new IllegalArgumentException("Symbols are not sorted: "
+            + symbols[i - 1] + ", " + symbols[i]);
+
+      int code = exchangeTable.indexOf(exchanges[i]);
+      if (code == -1) {
+        code = exchangeTable.size();
+        if (code > 0xff)
+          throw new IllegalArgumentException("Too many exchanges");
+        exchangeTable.add(exchanges[i]);
+      }
+      byte[] symbol = symbols[i].getBytes(CHARSET);
+      if (symbol.length > 0xff)
+        throw new IllegalArgumentException("Symbol too long: " + symbols[i]);
+      byte[] name = names[i].getBytes(CHARSET);
+      if (name.length > 0xff)
+        throw new IllegalArgumentException("Name too long: " + names[i]);
+
+      codes[i] = (byte) code;
+      symbolLengths[i] = (byte) symbol.length;
+      nameLengths[i] = (byte) name.length;
+      symbolTable.write(symbol);
+      nameTable.write(name);
+    }
+
+    DataOutputStream data = new DataOutputStream(output);
+    data.writeInt(MAGIC);
+    data.writeInt(VERSION);
+    data.writeInt(count);
+    data.writeByte(exchangeTable.size());
+    for (String exchange : exchangeTable) {
+      byte[] bytes = exchange.getBytes(CHARSET);
+      data.writeByte(bytes.length);
+      data.write(bytes);
+    }
+    data.write(codes);
+    data.write(symbolLengths);
+    data.write(nameLengths);
+    symbolTable.writeTo(data);
+    nameTable.writeTo(data);
+    data.flush();
+  }
+
+  /**
+   * Read the entire stream into a symbol file
+   *
+   * @param input
+   * @return symbol file
+   * @throws IOException
+   */
+  public static SymbolFile read(final InputStream input) throws IOException {
+    // Asset streams report their full remaining length as available
+    byte[] bytes = new byte[Math.max(input.available(), 8192)];
+    int length = 0;
+    while (true) {
+      if (length == bytes.length) {
+        int next = input.read();
+        if (next == -1)
+          break;
+        byte[] grown = new byte[bytes.length * 2];
+        System.arraycopy(bytes, 0, grown, 0, length);
+        bytes = grown;
+        bytes[length++] = (byte) next;
+      }
+      int read = input.read(bytes, length, bytes.length - length);
+      if (read == -1)
+        break;
+      length += read;
+    }
+    return new SymbolFile(ByteBuffer.wrap(bytes, 0, length));
+  }
+
+  private final ByteBuffer buffer;
+
+  private final int count;
+
+  private final String[] exchanges;
+
+  private final int codes;
+
+  private final int[] symbolOffsets;
+
+  private final int[] nameOffsets;
+
+  private final byte[] array;
+
+  private final int arrayOffset;
+
+  /**
+   * Create symbol file over the buffer's content starting at its position
+   *
+   * @param buffer
+   * @throws IOException
+   *           if the buffer does not contain a supported symbol file
+   */
+  public SymbolFile(final ByteBuffer buffer) throws IOException {
+    this.buffer = buffer.slice();
+    if (this.buffer.hasArray()) {
+      array = this.buffer.array();
+      arrayOffset = this.buffer.arrayOffset();
+    } else {
+      array = null;
+      arrayOffset = 0;
+    }
+    try {
+      if (this.buffer.getInt() != MAGIC)
+        throw new IOException("Not a symbol file");
+      int version = this.buffer.getInt();
+      if (version != VERSION)
+        throw new IOException("Unsupported symbol file version: " + version);
+      count = this.buffer.getInt();
+      exchanges = new String[this.buffer.get() & 0xff];
+      for (int i = 0; i < exchanges.length; i++) {
+        int length = this.buffer.get() & 0xff;
+        exchanges[i] = decode(this.buffer.position(), length);
+        this.buffer.position(this.buffer.position() + length);
+      }
+      codes = this.buffer.position();
+      final int symbolLengths = codes + count;
+      final int nameLengths = symbolLengths + count;
+      symbolOffsets = new int[count + 1];
+      nameOffsets = new int[count + 1];
+      symbolOffsets[0] = nameLengths + count;
+      for (int i = 0; i < count; i++)
+        symbolOffsets[i + 1] = symbolOffsets[i]
+            + (this.buffer.get(symbolLengths + i) & 0xff);
+      nameOffsets[0] = symbolOffsets[count];
+      for (int i = 0; i < count; i++)
+        nameOffsets[i + 1] = nameOffsets[i]
+            + (this.buffer.get(nameLengths + i) & 0xff);
+      if (nameOffsets[count] > this.buffer.limit())
+        throw new IOException("Symbol file truncated");
+    } catch (BufferUnderflowException e) {
+      throw new IOException("Symbol file truncated");
+    } catch (IndexOutOfBoundsException e) {
+      throw new IOException("Symbol file truncated");
+    }
+  }
+
+  private String decode(final int position, final int length) {
+    try {
+      if (array != null)
+        return new String(array, arrayOffset + position, length, CHARSET);
+
+      byte[] bytes = new byte[length];
+      for (int i = 0; i < length; i++)
+        bytes[i] = buffer.get(position + i);
+      return new String(bytes, CHARSET);
+    } catch (UnsupportedEncodingException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * @return number of stocks
+   */
+  public int size() {
+    return count;
+  }
+
+  /**
+   * Get symbol at row
+   *
+   * @param row
+   * @return symbol
+   */
+  public String getSymbol(final int row) {
+    return decode(symbolOffsets[row], symbolOffsets[row + 1]
+        - symbolOffsets[row]);
+  }
+
+  /**
+   * Get name at row
+   *
+   * @param row
+   * @return name
+   */
+  public String getName(final int row) {
+    return decode(nameOffsets[row], nameOffsets[row + 1] - nameOffsets[row]);
+  }
+
+  /**
+   * Get exchange at row
+   *
+   * @param row
+   * @return exchange
+   */
+  public String getExchange(final int row) {
+    return exchanges[buffer.get(codes + row) & 0xff];
+  }
+
+  /**
+   * Find row of symbol
+   * <p>
+   * The symbol is compared byte by byte to the encoded symbols so it must be
+   * ASCII to be found.
+   *
+   * @param symbol
+   * @return row or -(insertion point) - 1 if not found
+   */
+  public int find(final String symbol) {
+    int low = 0;
+    int high = count - 1;
+    while (low <= high) {
+      final int middle = (low + high) >>> 1;
+      final int start = symbolOffsets[middle];
+      final int length = symbolOffsets[middle + 1] - start;
+      final int common = Math.min(length, symbol.length());
+      int compare = 0;
+      for (int i = 0; i < common && compare == 0; i++)
+        compare = (buffer.get(start + i) & 0xff) - symbol.charAt(i);
+      if (compare == 0)
+        compare = length - symbol.length();
+      if (compare < 0)
+        low = middle + 1;
+      else if (compare > 0)
+        high = middle - 1;
+      else
+        return middle;
+    }
+    return -(low + 1);
+  }
+}
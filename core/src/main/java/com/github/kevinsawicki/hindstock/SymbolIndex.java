@@ -0,0 +1,250 @@
+/*
+ * Copyright 2012 Kevin Sawicki <kevinsawicki@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.kevinsawicki.hindstock;
+
+import static java.util.Locale.US;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable in-memory prefix index over stock symbols and name words
+ * <p>
+ * Rows are stored sorted by symbol in parallel arrays and the words of each
+ * name are stored sorted in a second pair of parallel arrays so that both
+ * symbol and name prefix lookups are binary searches.
+ */
+public class SymbolIndex {
+
+  private static class Token implements Comparable<Token> {
+
+    final String word;
+
+    final int row;
+
+    Token(final String word, final int row) {
+      this.word = word;
+      this.row = row;
+    }
+
+    @Override
+    public int compareTo(Token other) {
+      int compare = word.compareTo(other.word);
+      return compare != 0 ? compare : row - other.row;
+    }
+  }
+
+  /**
+   * Rows matching a query
+   */
+  public static class Result {
+
+    /**
+     * Row positions in the index
+     */
+    public final int[] rows;
+
+    /**
+     * Number of valid entries in {@link #rows}
+     */
+    public final int size;
+
+    Result(final int[] rows, final int size) {
+      this.rows = rows;
+      this.size = size;
+    }
+  }
+
+  /**
+   * Split text into upper case words of letters and digits
+   *
+   * @param text
+   * @return words
+   */
+  public static List<String> tokenize(final String text) {
+    List<String> words = new ArrayList<String>(4);
+    final int length = text.length();
+    int start = -1;
+    for (int i = 0; i < length; i++)
+      if (Character.isLetterOrDigit(text.charAt(i))) {
+        if (start == -1)
+          start = i;
+      } else if (start != -1) {
+        words.add(text.substring(start, i).toUpperCase(US));
+        start = -1;
+      }
+    if (start != -1)
+      words.add(text.substring(start).toUpperCase(US));
+    return words;
+  }
+
+  private static int lowerBound(final String[] values, final int size,
+      final String key) {
+    int low = 0;
+    int high = size;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (values[middle].compareTo(key) < 0)
+        low = middle + 1;
+      else
+        high = middle;
+    }
+    return low;
+  }
+
+  private final long[] ids;
+
+  private final String[] symbols;
+
+  private final String[] names;
+
+  private final String[] exchanges;
+
+  private final String[] words;
+
+  private final int[] wordRows;
+
+  /**
+   * Create index over the given stocks
+   * <p>
+   * The arrays must be the same length and sorted by symbol
+   *
+   * @param ids
+   * @param symbols
+   * @param names
+   * @param exchanges
+   */
+  public SymbolIndex(final long[] ids, final String[] symbols,
+      final String[] names, final String[] exchanges) {
+    this.ids = ids;
+    this.symbols = symbols;
+    this.names = names;
+    this.exchanges = exchanges;
+
+    List<Token> tokens = new ArrayList<Token>(symbols.length * 3);
+    for (int row = 0; row < symbols.length; row++)
+      for (String word : tokenize(names[row]))
+        tokens.add(new Token(word, row));
+    Collections.sort(tokens);
+
+    final int count = tokens.size();
+    words = new String[count];
+    wordRows = new int[count];
+    for (int i = 0; i < count; i++) {
+      Token token = tokens.get(i);
+      words[i] = token.word;
+      wordRows[i] = token.row;
+    }
+  }
+
+  /**
+   * @return number of stocks in index
+   */
+  public int size() {
+    return symbols.length;
+  }
+
+  /**
+   * @param row
+   * @return id of stock at row
+   */
+  public long getId(final int row) {
+    return ids[row];
+  }
+
+  /**
+   * @param row
+   * @return symbol of stock at row
+   */
+  public String getSymbol(final int row) {
+    return symbols[row];
+  }
+
+  /**
+   * @param row
+   * @return name of stock at row
+   */
+  public String getName(final int row) {
+    return names[row];
+  }
+
+  /**
+   * @param row
+   * @return exchange of stock at row
+   */
+  public String getExchange(final int row) {
+    return exchanges[row];
+  }
+
+  /**
+   * Get all rows
+   *
+   * @return result
+   */
+  public Result getAll() {
+    final int size = symbols.length;
+    final int[] rows = new int[size];
+    for (int i = 0; i < size; i++)
+      rows[i] = i;
+    return new Result(rows, size);
+  }
+
+  /**
+   * Find stocks with symbols starting with the query followed by stocks with
+   * a name word starting with every word in the query
+   *
+   * @param query
+   * @return result
+   */
+  public Result search(final String query) {
+    final int size = symbols.length;
+    final int[] rows = new int[size];
+    int found = 0;
+
+    // Row values are the number of query words matched so far and are set to
+    // -1 once a row has been added to the results
+    final int[] hits = new int[size];
+
+    final String prefix = query.trim().toUpperCase(US);
+    if (prefix.length() > 0)
+      for (int row = lowerBound(symbols, size, prefix); row < size
+          && symbols[row].startsWith(prefix); row++) {
+        rows[found++] = row;
+        hits[row] = -1;
+      }
+
+    List<String> queryWords = tokenize(query);
+    final int wordCount = queryWords.size();
+    if (wordCount == 0)
+      return new Result(rows, found);
+
+    for (int i = 0; i < wordCount; i++) {
+      String word = queryWords.get(i);
+      for (int token = lowerBound(words, words.length, word); token < words.length
+          && words[token].startsWith(word); token++) {
+        int row = wordRows[token];
+        if (hits[row] == i)
+          hits[row] = i + 1;
+      }
+    }
+
+    for (int row = 0; row < size; row++)
+      if (hits[row] == wordCount)
+        rows[found++] = row;
+    return new Result(rows, found);
+  }
+}
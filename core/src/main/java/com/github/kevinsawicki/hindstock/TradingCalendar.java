@@ -0,0 +1,276 @@
+/*
+ * Copyright 2012 Kevin Sawicki <kevinsawicki@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.kevinsawicki.hindstock;
+
+import static com.github.kevinsawicki.hindstock.EpochDays.getDayOfWeek;
+import static com.github.kevinsawicki.hindstock.EpochDays.toDay;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Calendar of the trading sessions of the New York Stock Exchange
+ * <p>
+ * Sessions are every weekday except the exchange holidays, computed from the
+ * holiday rules for each year, and the unscheduled closures since 1970 listed
+ * in {@link #CLOSURES}. The calendar is corrected from the bars fetched
+ * through {@link #learn(DayRange, List)}, so a day with a bar is a session
+ * and a short gap between bars is closed.
+ */
+public class TradingCalendar {
+
+  /**
+   * First year of the computed calendar, every weekday before it is a
+   * session
+   */
+  public static final int FIRST_YEAR = 1970;
+
+  /**
+   * Maximum number of days searched before a day for a session
+   */
+  public static final int MAX_SEARCH = 31;
+
+  /**
+   * Maximum number of consecutive sessions without a bar between two bars
+   * learned as closed
+   */
+  public static final int MAX_LEARNED_GAP = 5;
+
+  private static final int FIRST_DAY = toDay(FIRST_YEAR, 1, 1);
+
+  private static final int MONDAY = 1;
+
+  private static final int THURSDAY = 4;
+
+  private static final int FRIDAY = 5;
+
+  private static final int SATURDAY = 6;
+
+  private static final int SUNDAY = 7;
+
+  /**
+   * Unscheduled full day closures, such as for national days of mourning and
+   * weather
+   */
+  private static final int[] CLOSURES = new int[] { toDay(1972, 12, 28),
+      toDay(1973, 1, 25), toDay(1977, 7, 14), toDay(1985, 9, 27),
+      toDay(1994, 4, 27), toDay(2001, 9, 11), toDay(2001, 9, 12),
+      toDay(2001, 9, 13), toDay(2001, 9, 14), toDay(2004, 6, 11),
+      toDay(2007, 1, 2), toDay(2012, 10, 29), toDay(2012, 10, 30),
+      toDay(2018, 12, 5), toDay(2025, 1, 9) };
+
+  /**
+   * Get epoch day of the nth weekday of the month
+   *
+   * @param year
+   * @param month
+   * @param dayOfWeek
+   * @param n
+   * @return epoch day
+   */
+  private static int nthWeekday(final int year, final int month,
+      final int dayOfWeek, final int n) {
+    int first = toDay(year, month, 1);
+    int offset = (dayOfWeek - getDayOfWeek(first) + 7) % 7;
+    return first + offset + (n - 1) * 7;
+  }
+
+  /**
+   * Get epoch day of the last weekday of the month
+   *
+   * @param year
+   * @param month
+   * @param dayOfWeek
+   * @return epoch day
+   */
+  private static int lastWeekday(final int year, final int month,
+      final int dayOfWeek) {
+    int last = (month == 12 ? toDay(year + 1, 1, 1) : toDay(year, month + 1,
+        1)) - 1;
+    return last - (getDayOfWeek(last) - dayOfWeek + 7) % 7;
+  }
+
+  /**
+   * Get epoch day of Easter Sunday
+   *
+   * @param year
+   * @return epoch day
+   */
+  private static int easter(final int year) {
+    // Anonymous Gregorian algorithm
+    int a = year % 19;
+    int b = year / 100;
+    int c = year % 100;
+    int d = b / 4;
+    int e = b % 4;
+    int f = (b + 8) / 25;
+    int g = (b - f + 1) / 3;
+    int h = (19 * a + b - d - g + 15) % 30;
+    int i = c / 4;
+    int k = c % 4;
+    int l = (32 + 2 * e + 2 * i - h - k) % 7;
+    int m = (a + 11 * h + 22 * l) / 451;
+    int month = (h + l - 7 * m + 114) / 31;
+    int day = (h + l - 7 * m + 114) % 31 + 1;
+    return toDay(year, month, day);
+  }
+
+  private final BitSet sessions = new BitSet();
+
+  private final BitSet years = new BitSet();
+
+  private int learned;
+
+  private void close(final int day) {
+    if (day >= FIRST_DAY)
+      sessions.clear(day - FIRST_DAY);
+  }
+
+  /**
+   * Close the holiday, or the Friday before when it falls on a Saturday and
+   * the Monday after when it falls on a Sunday
+   */
+  private void closeObserved(final int day, final boolean saturdayObserved) {
+    int dayOfWeek = getDayOfWeek(day);
+    if (dayOfWeek == SATURDAY) {
+      if (saturdayObserved)
+        close(day - 1);
+    } else if (dayOfWeek == SUNDAY)
+      close(day + 1);
+    else
+      close(day);
+  }
+
+  private void computeYear(final int year) {
+    if (year < FIRST_YEAR || years.get(year - FIRST_YEAR))
+      return;
+    years.set(year - FIRST_YEAR);
+
+    int start = toDay(year, 1, 1);
+    int end = toDay(year + 1, 1, 1);
+    for (int day = start; day < end; day++)
+      if (getDayOfWeek(day) <= FRIDAY)
+        sessions.set(day - FIRST_DAY);
+
+    // New Year's Day falling on a Saturday isn't observed on the Friday before
+    closeObserved(start, false);
+    if (year >= 1998)
+      close(nthWeekday(year, 1, MONDAY, 3));
+    if (year >= 1971)
+      close(nthWeekday(year, 2, MONDAY, 3));
+    else
+      closeObserved(toDay(year, 2, 22), true);
+    close(easter(year) - 2);
+    if (year >= 1971)
+      close(lastWeekday(year, 5, MONDAY));
+    else
+      closeObserved(toDay(year, 5, 30), true);
+    if (year >= 2022)
+      closeObserved(toDay(year, 6, 19), true);
+    closeObserved(toDay(year, 7, 4), true);
+    close(nthWeekday(year, 9, MONDAY, 1));
+    // Presidential election days through 1980
+    if (year <= 1980 && year % 4 == 0)
+      close(nthWeekday(year, 11, MONDAY, 1) + 1);
+    close(nthWeekday(year, 11, THURSDAY, 4));
+    closeObserved(toDay(year, 12, 25), true);
+
+    for (int closure : CLOSURES)
+      if (closure >= start && closure < end)
+        close(closure);
+  }
+
+  private boolean isSessionLocked(final int day) {
+    if (day < FIRST_DAY)
+      return getDayOfWeek(day) <= FRIDAY;
+    computeYear(EpochDays.getYear(day));
+    return sessions.get(day - FIRST_DAY);
+  }
+
+  /**
+   * Is the exchange open on day?
+   *
+   * @param day
+   * @return true if a session, false otherwise
+   */
+  public synchronized boolean isSession(final int day) {
+    return isSessionLocked(day);
+  }
+
+  /**
+   * Get the last session on or before day
+   *
+   * @param day
+   * @return epoch day of session, or {@link #MAX_SEARCH} days before day if
+   *         no session was found
+   */
+  public synchronized int floor(final int day) {
+    for (int session = day; session > day - MAX_SEARCH; session--)
+      if (isSessionLocked(session))
+        return session;
+    return day - MAX_SEARCH;
+  }
+
+  /**
+   * @return number of days corrected from fetched bars
+   */
+  public synchronized int getLearnedCount() {
+    return learned;
+  }
+
+  /**
+   * Correct the calendar from the bars fetched for the range
+   * <p>
+   * Days with a bar are sessions. Sessions without a bar between two bars
+   * are closed when there are at most {@link #MAX_LEARNED_GAP} of them, longer
+   * gaps are more likely to be trading halts of the symbol than exchange
+   * closures.
+   *
+   * @param range
+   * @param bars
+   */
+  public synchronized void learn(final DayRange range, final List<Bar> bars) {
+    int[] days = new int[bars.size()];
+    int count = 0;
+    for (Bar bar : bars)
+      if (range.contains(bar.day) && bar.day >= FIRST_DAY)
+        days[count++] = bar.day;
+    Arrays.sort(days, 0, count);
+
+    for (int i = 0; i < count; i++) {
+      int day = days[i];
+      if (!isSessionLocked(day)) {
+        sessions.set(day - FIRST_DAY);
+        learned++;
+      }
+      if (i == 0 || days[i - 1] == day)
+        continue;
+
+      int gap = 0;
+      for (int between = days[i - 1] + 1; between < day; between++)
+        if (isSessionLocked(between))
+          gap++;
+      if (gap == 0 || gap > MAX_LEARNED_GAP)
+        continue;
+      for (int between = days[i - 1] + 1; between < day; between++)
+        if (isSessionLocked(between)) {
+          sessions.clear(between - FIRST_DAY);
+          learned++;
+        }
+    }
+  }
+}
@@ -0,0 +1,241 @@
+/*
+ * Copyright 2012 Kevin Sawicki <kevinsawicki@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.kevinsawicki.hindstock;
+
+/**
+ * Value of a position on every trading day from the day it was bought through
+ * the day it was sold stored in parallel primitive arrays
+ * <p>
+ * Each day's value is the shares held at that day's sell price in cents
+ * computed with {@link Money}, so the last value is exactly the sale amount of
+ * the matching {@link Quote}. Prices are held in millionths. Use
+ * {@link #downsample(int)} to reduce a long curve to about as many points as
+ * there are pixels to draw it with and {@link #getPlotValue(int)} to draw
+ * them.
+ */
+public class ValueCurve {
+
+  /**
+   * Create curve of the position bought in one bar of the series and sold in
+   * a later bar
+   *
+   * @param series
+   * @param buy
+   *          index of bar bought in
+   * @param sell
+   *          index of bar sold in
+   * @param shares
+   *          millionths of a share
+   * @return curve
+   */
+  public static ValueCurve create(final PriceSeries series, final int buy,
+      final int sell, final long shares) {
+    final int size = sell - buy + 1;
+    final int[] days = new int[size];
+    final long[] values = new long[size];
+    for (int i = 0; i < size; i++) {
+      days[i] = series.getDay(buy + i);
+      values[i] = Money.multiply(Money.toMicros(series.getSellPrice(buy + i)),
+          shares);
+    }
+    return new ValueCurve(days, values,
+        Money.toMicros(series.getBuyPrice(buy)),
+        Money.toMicros(series.getSellPrice(sell)), shares);
+  }
+
+  private final int[] days;
+
+  private final long[] values;
+
+  private final long buyPrice;
+
+  private final long sellPrice;
+
+  private final long shares;
+
+  private final long cost;
+
+  /**
+   * Create curve
+   *
+   * @param days
+   *          epoch days in ascending order
+   * @param values
+   *          value of position on each day in cents
+   * @param buyPrice
+   *          millionths of a dollar per share
+   * @param sellPrice
+   *          millionths of a dollar per share
+   * @param shares
+   *          millionths of a share
+   */
+  public ValueCurve(final int[] days, final long[] values,
+      final long buyPrice, final long sellPrice, final long shares) {
+    this.days = days;
+    this.values = values;
+    this.buyPrice = buyPrice;
+    this.sellPrice = sellPrice;
+    this.shares = shares;
+    cost = Money.multiply(buyPrice, shares);
+  }
+
+  /**
+   * @return number of points
+   */
+  public int size() {
+    return days.length;
+  }
+
+  /**
+   * Get epoch day of point
+   *
+   * @param index
+   * @return day
+   */
+  public int getDay(final int index) {
+    return days[index];
+  }
+
+  /**
+   * Get value of position at point
+   *
+   * @param index
+   * @return value in cents
+   */
+  public long getValue(final int index) {
+    return values[index];
+  }
+
+  /**
+   * Get value of position at point to draw it with
+   *
+   * @param index
+   * @return value in dollars
+   */
+  public float getPlotValue(final int index) {
+    return (float) Money.toDollars(values[index]);
+  }
+
+  /**
+   * Get net amount of position at point
+   *
+   * @param index
+   * @return net amount in cents
+   */
+  public long getNet(final int index) {
+    return values[index] - cost;
+  }
+
+  /**
+   * Get amount paid for shares
+   *
+   * @return purchase cost in cents
+   */
+  public long getCost() {
+    return cost;
+  }
+
+  /**
+   * @return lowest value of position in cents
+   */
+  public long getMinValue() {
+    long min = Long.MAX_VALUE;
+    for (long value : values)
+      min = Math.min(min, value);
+    return min;
+  }
+
+  /**
+   * @return highest value of position in cents
+   */
+  public long getMaxValue() {
+    long max = Long.MIN_VALUE;
+    for (long value : values)
+      max = Math.max(max, value);
+    return max;
+  }
+
+  /**
+   * Get quote of position sold on the last day
+   *
+   * @return quote
+   */
+  public Quote getQuote() {
+    return new Quote(buyPrice, sellPrice, shares);
+  }
+
+  /**
+   * Downsample curve using the largest triangle three buckets algorithm
+   * <p>
+   * The first and last points are always kept and one point is kept from each
+   * bucket in between, the one forming the largest triangle with the point
+   * kept from the previous bucket and the average of the next bucket, so peaks
+   * and troughs survive.
+   *
+   * @param threshold
+   *          maximum number of points
+   * @return downsampled curve or this curve if already at most threshold
+   *         points
+   */
+  public ValueCurve downsample(final int threshold) {
+    final int size = days.length;
+    if (threshold >= size || threshold < 3)
+      return this;
+
+    final int[] sampledDays = new int[threshold];
+    final long[] sampledValues = new long[threshold];
+    sampledDays[0] = days[0];
+    sampledValues[0] = values[0];
+
+    final double every = (double) (size - 2) / (threshold - 2);
+    int previous = 0;
+    for (int i = 0; i < threshold - 2; i++) {
+      final int nextStart = (int) ((i + 1) * every) + 1;
+      final int nextEnd = Math.min((int) ((i + 2) * every) + 1, size);
+      double averageDay = 0;
+      double averageValue = 0;
+      for (int j = nextStart; j < nextEnd; j++) {
+        averageDay += days[j];
+        averageValue += values[j];
+      }
+      averageDay /= nextEnd - nextStart;
+      averageValue /= nextEnd - nextStart;
+
+      final double previousDay = days[previous];
+      final double previousValue = values[previous];
+      final int end = nextStart;
+      double maxArea = -1;
+      int selected = (int) (i * every) + 1;
+      for (int j = selected; j < end; j++) {
+        double area = Math.abs((previousDay - averageDay)
+            * (values[j] - previousValue) - (previousDay - days[j])
+            * (averageValue - previousValue));
+        if (area > maxArea) {
+          maxArea = area;
+          selected = j;
+        }
+      }
+      sampledDays[i + 1] = days[selected];
+      sampledValues[i + 1] = values[selected];
+      previous = selected;
+    }
+
+    sampledDays[threshold - 1] = days[size - 1];
+    sampledValues[threshold - 1] = values[size - 1];
+    return new ValueCurve(sampledDays, sampledValues, buyPrice, sellPrice,
+        shares);
+  }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2012 Kevin Sawicki <kevinsawicki@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.kevinsawicki.hindstock;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writer of the binary {@link SymbolFile} bundled with the app from a symbol
+ * list file
+ */
+public class BinaryLoader {
+
+	private final File input;
+
+	private final File output;
+
+	/**
+	 * Create loader to read symbols from input file and write a binary symbol
+	 * file to the output file
+	 *
+	 * @param input
+	 * @param output
+	 */
+	public BinaryLoader(final File input, final File output) {
+		this.input = input;
+		this.output = output;
+	}
+
+	/**
+	 * Write all symbols to the binary file
+	 *
+	 * @return number of stocks written
+	 * @throws IOException
+	 */
+	public int load() throws IOException {
+		List<String> symbols = new ArrayList<String>();
+		List<String> names = new ArrayList<String>();
+		List<String> exchanges = new ArrayList<String>();
+		BufferedReader reader = new BufferedReader(new FileReader(input), 8192);
+		try {
+			String symbol;
+			while ((symbol = reader.readLine()) != null) {
+				symbols.add(symbol);
+				names.add(reader.readLine());
+				exchanges.add(reader.readLine());
+			}
+		} finally {
+			reader.close();
+		}
+
+		final int count = symbols.size();
+		OutputStream stream = new BufferedOutputStream(new FileOutputStream(
+				output));
+		try {
+			SymbolFile.write(stream, symbols.toArray(new String[count]),
+					names.toArray(new String[count]),
+					exchanges.toArray(new String[count]));
+		} finally {
+			stream.close();
+		}
+		return count;
+	}
+
+	/**
+	 * Write a binary symbol file from a symbol list file.
+	 * <p>
+	 * First argument must be path to the stocks.txt file written by
+	 * {@link SymbolLoader}
+	 * <p>
+	 * Second argument must be path to output binary file
+	 *
+	 * @param args
+	 * @throws IOException
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length != 2) {
+			System.err
+					.println("First argument must be symbol list file, second argument must be output binary file");
+			return;
+		}
+
+		int count = new BinaryLoader(new File(args[0]), new File(args[1]))
+				.load();
+		System.out.println("Stocks written: " + count + " Size: "
+				+ new File(args[1]).length() + " bytes");
+	}
+}
@@ -0,0 +1,316 @@
+/*
+ * Copyright 2012 Kevin Sawicki <kevinsawicki@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.kevinsawicki.hindstock;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Streaming reader of RFC 4180 comma separated values
+ * <p>
+ * Records are tokenized in place in a reused char buffer that only grows when
+ * a single record does not fit in it, so reading records allocates nothing.
+ * Quoted fields are unescaped in place and a {@link String} is only created
+ * when a column is requested with {@link #get(int)}.
+ * <p>
+ * Fields may be quoted, quoted fields may contain commas, line breaks, and
+ * quotes escaped by doubling them. Records may end with LF, CRLF, or CR.
+ */
+public class CsvReader {
+
+	private final Reader reader;
+
+	private char[] buffer;
+
+	private int position;
+
+	private int limit;
+
+	private int mark;
+
+	private int fieldStart;
+
+	private int write;
+
+	private int[] starts = new int[16];
+
+	private int[] ends = new int[16];
+
+	private int columns;
+
+	private long records;
+
+	/**
+	 * Create reader with a default buffer size
+	 *
+	 * @param reader
+	 */
+	public CsvReader(final Reader reader) {
+		this(reader, 8192);
+	}
+
+	/**
+	 * Create reader
+	 *
+	 * @param reader
+	 * @param bufferSize
+	 */
+	public CsvReader(final Reader reader, final int bufferSize) {
+		this.reader = reader;
+		buffer = new char[bufferSize];
+	}
+
+	/**
+	 * Read more input into the buffer, moving the current record to the start
+	 * of the buffer or growing the buffer when it is full
+	 *
+	 * @return true if more input was read, false at the end of the input
+	 * @throws IOException
+	 */
+	private boolean fill() throws IOException {
+		if (mark > 0) {
+			final int shift = mark;
+			System.arraycopy(buffer, shift, buffer, 0, limit - shift);
+			limit -= shift;
+			position -= shift;
+			fieldStart -= shift;
+			write -= shift;
+			mark = 0;
+			for (int i = 0; i < columns; i++) {
+				starts[i] -= shift;
+				ends[i] -= shift;
+			}
+		} else if (limit == buffer.length) {
+			char[] grown = new char[buffer.length * 2];
+			System.arraycopy(buffer, 0, grown, 0, limit);
+			buffer = grown;
+		}
+		final int read = reader.read(buffer, limit, buffer.length - limit);
+		if (read <= 0)
+			return false;
+		limit += read;
+		return true;
+	}
+
+	private void addField(final int end) {
+		if (columns == starts.length) {
+			int[] grown = new int[columns * 2];
+			System.arraycopy(starts, 0, grown, 0, columns);
+			starts = grown;
+			grown = new int[columns * 2];
+			System.arraycopy(ends, 0, grown, 0, columns);
+			ends = grown;
+		}
+		starts[columns] = fieldStart;
+		ends[columns++] = end;
+	}
+
+	/**
+	 * Advance to the next comma or line break, moving any characters passed
+	 * to the write position when unescaping a quoted field
+	 *
+	 * @param copy
+	 * @throws IOException
+	 */
+	private void scanUnquoted(final boolean copy) throws IOException {
+		while (true) {
+			final char[] chars = buffer;
+			final int end = limit;
+			int current = position;
+			while (current < end) {
+				final char c = chars[current];
+				if (c == ',' || c == '\n' || c == '\r')
+					break;
+				if (copy)
+					chars[write++] = c;
+				current++;
+			}
+			position = current;
+			if (current < end || !fill())
+				return;
+		}
+	}
+
+	/**
+	 * Advance past the closing quote of a quoted field, unescaping doubled
+	 * quotes to the write position
+	 *
+	 * @throws IOException
+	 */
+	private void scanQuoted() throws IOException {
+		boolean quote = false;
+		while (true) {
+			final char[] chars = buffer;
+			final int end = limit;
+			int current = position;
+			int out = write;
+			if (quote) {
+				// Previous read ended on a quote that may be escaping another
+				if (chars[current] != '"')
+					return;
+				chars[out++] = '"';
+				current++;
+				quote = false;
+			}
+			// Until a quote is unescaped characters are already in place
+			if (out == current) {
+				while (current < end && chars[current] != '"')
+					current++;
+				out = current;
+			}
+			while (current < end) {
+				final char c = chars[current++];
+				if (c == '"') {
+					if (current == end) {
+						quote = true;
+						break;
+					}
+					if (chars[current] != '"') {
+						position = current;
+						write = out;
+						return;
+					}
+					current++;
+				}
+				chars[out++] = c;
+			}
+			position = current;
+			write = out;
+			if (!fill()) {
+				if (quote)
+					return;
+				throw new IOException("Unterminated quoted field in record "
+						+ (records + 1));
+			}
+		}
+	}
+
+	/**
+	 * Read the next record
+	 *
+	 * @return true if a record was read, false if the end of the input was
+	 *         reached
+	 * @throws IOException
+	 *             if reading fails or a quoted field is not closed
+	 */
+	public boolean next() throws IOException {
+		columns = 0;
+		mark = position;
+		if (position == limit && !fill())
+			return false;
+
+		while (true) {
+			if (buffer[position] == '"') {
+				fieldStart = ++position;
+				write = position;
+				scanQuoted();
+				// Keep any text following the closing quote
+				scanUnquoted(true);
+				addField(write);
+			} else {
+				fieldStart = position;
+				scanUnquoted(false);
+				addField(position);
+			}
+
+			if (position == limit && !fill())
+				break;
+			final char c = buffer[position++];
+			if (c == ',') {
+				if (position == limit && !fill()) {
+					fieldStart = position;
+					addField(position);
+					break;
+				}
+				continue;
+			}
+			if (c == '\r' && (position < limit || fill())
+					&& buffer[position] == '\n')
+				position++;
+			break;
+		}
+		records++;
+		return true;
+	}
+
+	/**
+	 * @return number of records read
+	 */
+	public long getRecordCount() {
+		return records;
+	}
+
+	/**
+	 * @return number of columns in the current record
+	 */
+	public int getColumnCount() {
+		return columns;
+	}
+
+	/**
+	 * Get value of column in the current record
+	 *
+	 * @param column
+	 * @return value or null if the record has no such column
+	 */
+	public String get(final int column) {
+		if (column >= columns)
+			return null;
+		return new String(buffer, starts[column], ends[column]
+				- starts[column]);
+	}
+
+	/**
+	 * Get length of column in the current record
+	 *
+	 * @param column
+	 * @return length or -1 if the record has no such column
+	 */
+	public int getLength(final int column) {
+		if (column >= columns)
+			return -1;
+		return ends[column] - starts[column];
+	}
+
+	/**
+	 * Find character in column of the current record
+	 *
+	 * @param column
+	 * @param c
+	 * @return offset of the first occurrence in the column, or -1 if not
+	 *         found or the record has no such column
+	 */
+	public int indexOf(final int column, final char c) {
+		if (column >= columns)
+			return -1;
+		final int end = ends[column];
+		for (int i = starts[column]; i < end; i++)
+			if (buffer[i] == c)
+				return i - starts[column];
+		return -1;
+	}
+
+	/**
+	 * Close the underlying reader
+	 */
+	public void close() {
+		try {
+			reader.close();
+		} catch (IOException ignored) {
+			// Ignored
+		}
+	}
+}
@@ -0,0 +1,253 @@
+/*
+ * Copyright 2012 Kevin Sawicki <kevinsawicki@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.kevinsawicki.hindstock;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Loader of a prebuilt SQLite stocks database from a symbol list file
+ * <p>
+ * The database written matches the schema and version created by the app's
+ * StocksCache class so it can be copied from the app's assets on first launch
+ * instead of being populated line by line.
+ */
+public class DatabaseLoader {
+
+	/**
+	 * Schema version, must match the version used by StocksCache
+	 */
+	public static final int VERSION = 10;
+
+	/**
+	 * Version of the symbol list written, must match the list version used by
+	 * StocksCache
+	 */
+	public static final int LIST_VERSION = 1;
+
+	static {
+		try {
+			Class.forName("org.sqlite.JDBC");
+		} catch (ClassNotFoundException e) {
+			throw new IllegalStateException("SQLite JDBC driver not found", e);
+		}
+	}
+
+	/**
+	 * Open connection to SQLite database file
+	 *
+	 * @param file
+	 * @return connection
+	 * @throws SQLException
+	 */
+	public static Connection open(final File file) throws SQLException {
+		return DriverManager.getConnection("jdbc:sqlite:"
+				+ file.getAbsolutePath());
+	}
+
+	/**
+	 * Create the stocks and sections tables
+	 *
+	 * @param connection
+	 * @throws SQLException
+	 */
+	public static void createTables(final Connection connection)
+			throws SQLException {
+		Statement statement = connection.createStatement();
+		try {
+			statement
+					.execute("CREATE TABLE stocks (_id INTEGER PRIMARY KEY AUTOINCREMENT, symbol TEXT, name TEXT, exchange TEXT);");
+			statement
+					.execute("CREATE TABLE sections (_id INTEGER PRIMARY KEY, section TEXT, count INTEGER);");
+		} finally {
+			statement.close();
+		}
+	}
+
+	/**
+	 * Populate the sections table with the number of stocks starting with
+	 * each character
+	 *
+	 * @param connection
+	 * @throws SQLException
+	 */
+	public static void buildSections(final Connection connection)
+			throws SQLException {
+		Statement statement = connection.createStatement();
+		try {
+			statement.execute("DELETE FROM sections;");
+			statement
+					.execute("INSERT INTO sections (section, count) SELECT substr(symbol, 1, 1), COUNT(*) FROM stocks GROUP BY 1 ORDER BY 1;");
+		} finally {
+			statement.close();
+		}
+	}
+
+	/**
+	 * Create the symbol index and populate the sections table from the stocks
+	 * table
+	 *
+	 * @param connection
+	 * @throws SQLException
+	 */
+	public static void buildIndex(final Connection connection)
+			throws SQLException {
+		Statement statement = connection.createStatement();
+		try {
+			statement
+					.execute("CREATE INDEX stocks_symbol ON stocks (symbol);");
+		} finally {
+			statement.close();
+		}
+		buildSections(connection);
+	}
+
+	/**
+	 * Insert every stock in the symbol list into the stocks table with a
+	 * single compiled statement
+	 *
+	 * @param connection
+	 * @param reader
+	 *            symbol list with symbol, name, and exchange lines for each
+	 *            stock
+	 * @return number of stocks inserted
+	 * @throws IOException
+	 * @throws SQLException
+	 */
+	public static int insertStocks(final Connection connection,
+			final BufferedReader reader) throws IOException, SQLException {
+		int count = 0;
+		PreparedStatement stocks = connection
+				.prepareStatement("INSERT INTO stocks (symbol, name, exchange) VALUES (?, ?, ?);");
+		try {
+			String symbol;
+			while ((symbol = reader.readLine()) != null) {
+				stocks.setString(1, symbol);
+				stocks.setString(2, reader.readLine());
+				stocks.setString(3, reader.readLine());
+				stocks.executeUpdate();
+				count++;
+			}
+		} finally {
+			stocks.close();
+		}
+		return count;
+	}
+
+	private final File input;
+
+	private final File output;
+
+	/**
+	 * Create loader to read symbols from input file and write a database to
+	 * the output file
+	 *
+	 * @param input
+	 * @param output
+	 */
+	public DatabaseLoader(final File input, final File output) {
+		this.input = input;
+		this.output = output;
+	}
+
+	/**
+	 * Write all symbols to a new database file
+	 *
+	 * @return number of stocks written
+	 * @throws IOException
+	 * @throws SQLException
+	 */
+	public int load() throws IOException, SQLException {
+		if (output.exists() && !output.delete())
+			throw new IOException("Unable to delete "
+					+ output.getAbsolutePath());
+
+		int count = 0;
+		BufferedReader reader = new BufferedReader(new FileReader(input), 8192);
+		Connection connection = open(output);
+		try {
+			createTables(connection);
+
+			Statement statement = connection.createStatement();
+			try {
+				statement
+						.execute("CREATE TABLE android_metadata (locale TEXT);");
+				statement
+						.execute("INSERT INTO android_metadata VALUES ('en_US');");
+				statement
+						.execute("CREATE TABLE symbol_list (version INTEGER);");
+				statement.execute("INSERT INTO symbol_list VALUES ("
+						+ LIST_VERSION + ");");
+			} finally {
+				statement.close();
+			}
+
+			connection.setAutoCommit(false);
+			count = insertStocks(connection, reader);
+			buildIndex(connection);
+			connection.commit();
+			connection.setAutoCommit(true);
+
+			statement = connection.createStatement();
+			try {
+				statement.execute("PRAGMA user_version = " + VERSION + ";");
+				statement.execute("VACUUM;");
+			} finally {
+				statement.close();
+			}
+		} finally {
+			connection.close();
+			try {
+				reader.close();
+			} catch (IOException ignored) {
+				// Ignored
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Write a prebuilt stocks database from a symbol list file.
+	 * <p>
+	 * First argument must be path to the stocks.txt file written by
+	 * {@link SymbolLoader}
+	 * <p>
+	 * Second argument must be path to output database file
+	 *
+	 * @param args
+	 * @throws Exception
+	 */
+	public static void main(String[] args) throws Exception {
+		if (args.length != 2) {
+			System.err
+					.println("First argument must be symbol list file, second argument must be output database file");
+			return;
+		}
+
+		long start = System.currentTimeMillis();
+		int count = new DatabaseLoader(new File(args[0]), new File(args[1]))
+				.load();
+		System.out.println("Stocks written: " + count + " Took "
+				+ (System.currentTimeMillis() - start) + "ms");
+	}
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2012 Kevin Sawicki <kevinsawicki@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.kevinsawicki.hindstock;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Writer of the {@link SymbolDelta} between two versions of the binary symbol
+ * list so the app can upgrade its stocks database in place instead of
+ * importing the full list again
+ */
+public class DeltaLoader {
+
+	private static SymbolFile read(final File file) throws IOException {
+		InputStream input = new FileInputStream(file);
+		try {
+			return SymbolFile.read(input);
+		} finally {
+			input.close();
+		}
+	}
+
+	private static long getId(final PreparedStatement query,
+			final String symbol) throws SQLException {
+		query.setString(1, symbol);
+		ResultSet results = query.executeQuery();
+		try {
+			return results.next() ? results.getLong(1) : -1;
+		} finally {
+			results.close();
+		}
+	}
+
+	/**
+	 * Apply delta to the stocks and sections tables the same way
+	 * StocksCache does when upgrading
+	 *
+	 * @param connection
+	 * @param delta
+	 * @throws SQLException
+	 */
+	public static void apply(final Connection connection,
+			final SymbolDelta delta) throws SQLException {
+		PreparedStatement query = connection
+				.prepareStatement("SELECT _id FROM stocks WHERE symbol = ?;");
+		PreparedStatement deleteStock = connection
+				.prepareStatement("DELETE FROM stocks WHERE _id = ?;");
+		PreparedStatement updateStock = connection
+				.prepareStatement("UPDATE stocks SET symbol = ?, name = ?, exchange = ? WHERE _id = ?;");
+		PreparedStatement insertStock = connection
+				.prepareStatement("INSERT INTO stocks (symbol, name, exchange) VALUES (?, ?, ?);");
+		try {
+			for (String symbol : delta.removed) {
+				long id = getId(query, symbol);
+				if (id == -1)
+					continue;
+				deleteStock.setLong(1, id);
+				deleteStock.executeUpdate();
+			}
+
+			for (SymbolDelta.Entry entry : delta.updated) {
+				long id = getId(query, entry.previous);
+				if (id == -1)
+					continue;
+				updateStock.setString(1, entry.symbol);
+				updateStock.setString(2, entry.name);
+				updateStock.setString(3, entry.exchange);
+				updateStock.setLong(4, id);
+				updateStock.executeUpdate();
+			}
+
+			for (SymbolDelta.Entry entry : delta.added) {
+				insertStock.setString(1, entry.symbol);
+				insertStock.setString(2, entry.name);
+				insertStock.setString(3, entry.exchange);
+				insertStock.executeUpdate();
+			}
+		} finally {
+			query.close();
+			deleteStock.close();
+			updateStock.close();
+			insertStock.close();
+		}
+		DatabaseLoader.buildSections(connection);
+	}
+
+	private final File from;
+
+	private final File to;
+
+	private final int fromVersion;
+
+	private final int toVersion;
+
+	/**
+	 * Create loader comparing two binary symbol files
+	 *
+	 * @param from
+	 * @param fromVersion
+	 * @param to
+	 * @param toVersion
+	 */
+	public DeltaLoader(final File from, final int fromVersion, final File to,
+			final int toVersion) {
+		this.from = from;
+		this.fromVersion = fromVersion;
+		this.to = to;
+		this.toVersion = toVersion;
+	}
+
+	/**
+	 * Compute the delta between the symbol files
+	 *
+	 * @return delta
+	 * @throws IOException
+	 */
+	public SymbolDelta load() throws IOException {
+		return SymbolDelta.diff(read(from), fromVersion, read(to), toVersion);
+	}
+
+	/**
+	 * Write the delta between two binary symbol files.
+	 * <p>
+	 * Arguments must be the path to the previous stocks.bin file, its symbol
+	 * list version, the path to the new stocks.bin file, its symbol list
+	 * version, and the path to the output delta file
+	 *
+	 * @param args
+	 * @throws IOException
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length != 5) {
+			System.err
+					.println("Arguments must be previous symbol file, previous version, new symbol file, new version, and output delta file");
+			return;
+		}
+
+		SymbolDelta delta = new DeltaLoader(new File(args[0]),
+				Integer.parseInt(args[1]), new File(args[2]),
+				Integer.parseInt(args[3])).load();
+		OutputStream output = new BufferedOutputStream(new FileOutputStream(
+				args[4]));
+		try {
+			delta.write(output);
+		} finally {
+			output.close();
+		}
+		System.out.println("Delta written: " + delta + " Size: "
+				+ new File(args[4]).length() + " bytes");
+	}
+}
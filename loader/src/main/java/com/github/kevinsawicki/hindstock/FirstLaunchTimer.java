@@ -0,0 +1,211 @@
+/*
+ * Copyright 2012 Kevin Sawicki <kevinsawicki@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.kevinsawicki.hindstock;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Timing harness comparing the first launch paths of the stocks database:
+ * importing the symbol list row by row, importing it with a single compiled
+ * statement and a deferred full-text index build, and copying the prebuilt
+ * database.
+ */
+public class FirstLaunchTimer {
+
+	private final File symbols;
+
+	private final File database;
+
+	private final File target;
+
+	/**
+	 * Create timer
+	 *
+	 * @param symbols
+	 * @param database
+	 * @throws IOException
+	 */
+	public FirstLaunchTimer(final File symbols, final File database)
+			throws IOException {
+		this.symbols = symbols;
+		this.database = database;
+		target = File.createTempFile("stocks", ".db");
+		target.deleteOnExit();
+	}
+
+	private void reset() throws IOException {
+		if (target.exists() && !target.delete())
+			throw new IOException("Unable to delete "
+					+ target.getAbsolutePath());
+	}
+
+	/**
+	 * Import the symbol list with a statement compiled for each inserted row
+	 *
+	 * @return time in milliseconds
+	 * @throws IOException
+	 * @throws SQLException
+	 */
+	public long timeRowImport() throws IOException, SQLException {
+		reset();
+		long start = System.nanoTime();
+		BufferedReader reader = new BufferedReader(new FileReader(symbols),
+				8192 * 2);
+		Connection connection = DatabaseLoader.open(target);
+		try {
+			DatabaseLoader.createTables(connection);
+			connection.setAutoCommit(false);
+			String symbol;
+			while ((symbol = reader.readLine()) != null) {
+				String name = reader.readLine();
+				String exchange = reader.readLine();
+
+				PreparedStatement stocks = connection
+						.prepareStatement("INSERT INTO stocks (symbol, name, exchange) VALUES (?, ?, ?);");
+				stocks.setString(1, symbol);
+				stocks.setString(2, name);
+				stocks.setString(3, exchange);
+				stocks.executeUpdate();
+				stocks.close();
+			}
+			connection.commit();
+			count(connection);
+		} finally {
+			connection.close();
+			reader.close();
+		}
+		return (System.nanoTime() - start) / 1000000;
+	}
+
+	/**
+	 * Import the symbol list the same way StocksCache.onCreate does with one
+	 * compiled insert statement and the symbol index and sections built after
+	 * all rows are inserted
+	 *
+	 * @return time in milliseconds
+	 * @throws IOException
+	 * @throws SQLException
+	 */
+	public long timeBulkImport() throws IOException, SQLException {
+		reset();
+		long start = System.nanoTime();
+		BufferedReader reader = new BufferedReader(new FileReader(symbols),
+				8192 * 2);
+		Connection connection = DatabaseLoader.open(target);
+		try {
+			DatabaseLoader.createTables(connection);
+			connection.setAutoCommit(false);
+			DatabaseLoader.insertStocks(connection, reader);
+			DatabaseLoader.buildIndex(connection);
+			connection.commit();
+			count(connection);
+		} finally {
+			connection.close();
+			reader.close();
+		}
+		return (System.nanoTime() - start) / 1000000;
+	}
+
+	/**
+	 * Copy the prebuilt database the same way StocksCache does on first open
+	 *
+	 * @return time in milliseconds
+	 * @throws IOException
+	 * @throws SQLException
+	 */
+	public long timeCopy() throws IOException, SQLException {
+		reset();
+		long start = System.nanoTime();
+		InputStream input = new FileInputStream(database);
+		OutputStream output = new FileOutputStream(target);
+		try {
+			byte[] buffer = new byte[8192];
+			int read;
+			while ((read = input.read(buffer)) != -1)
+				output.write(buffer, 0, read);
+		} finally {
+			input.close();
+			output.close();
+		}
+		Connection connection = DatabaseLoader.open(target);
+		try {
+			count(connection);
+		} finally {
+			connection.close();
+		}
+		return (System.nanoTime() - start) / 1000000;
+	}
+
+	private static int count(final Connection connection) throws SQLException {
+		Statement statement = connection.createStatement();
+		try {
+			ResultSet result = statement
+					.executeQuery("SELECT COUNT(*) FROM stocks;");
+			return result.next() ? result.getInt(1) : 0;
+		} finally {
+			statement.close();
+		}
+	}
+
+	/**
+	 * Time each first launch path
+	 * <p>
+	 * First argument must be path to the stocks.txt symbol list
+	 * <p>
+	 * Second argument must be path to the prebuilt stocks.db database
+	 * <p>
+	 * Optional third argument is the number of runs of each path, defaults to
+	 * 5
+	 *
+	 * @param args
+	 * @throws Exception
+	 */
+	public static void main(String[] args) throws Exception {
+		if (args.length < 2) {
+			System.err
+					.println("First argument must be symbol list file, second argument must be prebuilt database file");
+			return;
+		}
+
+		int runs = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+		FirstLaunchTimer timer = new FirstLaunchTimer(new File(args[0]),
+				new File(args[1]));
+		long rowTime = Long.MAX_VALUE;
+		long bulkTime = Long.MAX_VALUE;
+		long copyTime = Long.MAX_VALUE;
+		for (int i = 0; i < runs; i++) {
+			rowTime = Math.min(rowTime, timer.timeRowImport());
+			bulkTime = Math.min(bulkTime, timer.timeBulkImport());
+			copyTime = Math.min(copyTime, timer.timeCopy());
+		}
+		timer.reset();
+		System.out.println("Best of " + runs + " runs - Row import: "
+				+ rowTime + "ms Bulk import: " + bulkTime + "ms Copy: "
+				+ copyTime + "ms");
+	}
+}
@@ -1,145 +1,411 @@
+/*
+ * Copyright 2012 Kevin Sawicki <kevinsawicki@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
 package com.github.kevinsawicki.hindstock;
 
+import static java.util.Calendar.YEAR;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import com.github.kevinsawicki.http.HttpRequest.HttpRequestException;
 import com.github.kevinsawicki.stocks.StockQuoteRequest;
 
 import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.PrintWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
-import java.util.Calendar;
-import java.util.Date;
 import java.util.GregorianCalendar;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * 
+ * Crawler of the first sale date and price of every stock in a company list
+ * CSV file
+ * <p>
+ * Symbols are crawled concurrently on a bounded pool of threads with every
+ * quote request to the quote host going through a shared {@link RateLimiter}.
+ * The listing year is found with a binary search over the years since
+ * {@link #FIRST_YEAR} instead of walking back one year at a time.
+ * <p>
+ * Each result is appended to the output file as soon as it is found so the
+ * output doubles as a checkpoint: symbols already present in it are skipped
+ * when an interrupted crawl is restarted. Symbols with no quotes are written
+ * with an empty date and price so they are not requested again.
  */
 public class StockListLoader {
 
-	private final StockQuoteRequest request;
+	/**
+	 * Host that quote requests are sent to
+	 */
+	public static final String HOST = "www.google.com";
+
+	/**
+	 * Earliest year searched for quotes
+	 */
+	public static final int FIRST_YEAR = 1970;
+
+	/**
+	 * Default number of symbols crawled at once
+	 */
+	public static final int DEFAULT_THREADS = 8;
+
+	/**
+	 * Default maximum number of requests per second sent to {@link #HOST}
+	 */
+	public static final double DEFAULT_RATE = 10;
+
+	/**
+	 * Quote request that waits for a permit before opening its connection
+	 */
+	private static class ThrottledRequest extends StockQuoteRequest {
+
+		private final RateLimiter limiter;
+
+		ThrottledRequest(final RateLimiter limiter) {
+			this.limiter = limiter;
+		}
+
+		@Override
+		protected BufferedReader openReader() throws IOException {
+			limiter.acquire();
+			return super.openReader();
+		}
+	}
+
+	private static String quote(final String value) {
+		return '"' + value.replace("\"", "\"\"") + '"';
+	}
+
+	private final File output;
+
+	private final File input;
+
+	private final int threads;
+
+	private final RateLimiter limiter;
+
+	private final int currentYear = new GregorianCalendar().get(YEAR);
 
-	private final BufferedReader reader;
+	private final AtomicInteger requests = new AtomicInteger();
 
-	private final GregorianCalendar startDate;
+	private final AtomicInteger found = new AtomicInteger();
 
-	private final GregorianCalendar endDate;
+	private final AtomicInteger missing = new AtomicInteger();
 
-	private final PrintWriter writer;
+	private final AtomicInteger failed = new AtomicInteger();
 
-	private final DateFormat format = new SimpleDateFormat("yyyy-MM-dd");
+	private Writer writer;
 
-	private int year;
+	/**
+	 * Create loader
+	 *
+	 * @param output
+	 *            file results are appended to and resumed from
+	 * @param input
+	 *            company list CSV file with symbol and name columns
+	 * @param threads
+	 *            maximum number of symbols crawled at once
+	 * @param permitsPerSecond
+	 *            maximum number of requests per second sent to {@link #HOST}
+	 */
+	public StockListLoader(final File output, final File input,
+			final int threads, final double permitsPerSecond) {
+		this.output = output;
+		this.input = input;
+		this.threads = threads;
+		limiter = new RateLimiter(permitsPerSecond);
+	}
 
-	public StockListLoader(final File output, final InputStream stream)
+	/**
+	 * Get the oldest bar in the year
+	 *
+	 * @param symbol
+	 * @param year
+	 * @return bar or null if no quotes exist for that year
+	 * @throws IOException
+	 */
+	private Bar getOldest(final String symbol, final int year)
 			throws IOException {
-		reader = new BufferedReader(new InputStreamReader(stream), 8192);
-		reader.readLine();
-		writer = new PrintWriter(output);
-		request = new StockQuoteRequest();
-		startDate = new GregorianCalendar();
-		year = startDate.get(Calendar.YEAR);
-		endDate = new GregorianCalendar();
+		requests.incrementAndGet();
+		StockQuoteRequest request = new ThrottledRequest(limiter);
+		request.setSymbol(symbol)
+				.setStartDate(EpochDays.toDate(EpochDays.toDay(year, 1, 1)))
+				.setEndDate(EpochDays.toDate(EpochDays.toDay(year, 12, 31)));
+		Bar oldest = null;
+		try {
+			// Quotes are returned newest first
+			while (request.next())
+				oldest = new Bar(EpochDays.toDay(request.getDate()),
+						request.getOpen(), request.getHigh(), request.getLow(),
+						request.getClose(), request.getVolume());
+		} catch (HttpRequestException e) {
+			throw e.getCause();
+		} finally {
+			request.release();
+		}
+		return oldest;
 	}
 
-	private void resetDates(int year) {
-		startDate.set(Calendar.YEAR, year);
-		startDate.set(Calendar.DAY_OF_YEAR, 1);
-		endDate.set(Calendar.YEAR, year + 1);
-		startDate.set(Calendar.DAY_OF_YEAR, 1);
-		startDate.add(Calendar.DAY_OF_YEAR, -1);
+	/**
+	 * Find the first bar of the symbol
+	 * <p>
+	 * Quotes are assumed to exist for every year from the listing year
+	 * through the current year, or the year before if none exist yet for the
+	 * current year.
+	 *
+	 * @param symbol
+	 * @return bar or null if no quotes exist
+	 * @throws IOException
+	 */
+	public Bar findFirst(final String symbol) throws IOException {
+		int high = currentYear;
+		Bar first = getOldest(symbol, high);
+		if (first == null) {
+			first = getOldest(symbol, --high);
+			if (first == null)
+				return null;
+		}
+
+		int low = FIRST_YEAR;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			Bar bar = getOldest(symbol, middle);
+			if (bar != null) {
+				first = bar;
+				high = middle;
+			} else
+				low = middle + 1;
+		}
+		return first;
 	}
 
 	/**
-	 * Release the resources held by this generator
+	 * Truncate the output to the end of its last complete line
+	 * <p>
+	 * A crawl that died partway through writing a record leaves a final line
+	 * with no newline that would fail to parse and have the next record
+	 * appended onto it, so it is dropped and its symbol is crawled again.
+	 *
+	 * @throws IOException
 	 */
-	public void release() {
-		if (reader != null)
-			try {
-				reader.close();
-			} catch (IOException ignored) {
-				// Ignored
+	private void truncatePartial() throws IOException {
+		RandomAccessFile file = new RandomAccessFile(output, "rw");
+		try {
+			final long length = file.length();
+			long end = length;
+			byte[] buffer = new byte[8192];
+			boolean complete = false;
+			while (end > 0 && !complete) {
+				int read = (int) Math.min(buffer.length, end);
+				file.seek(end - read);
+				file.readFully(buffer, 0, read);
+				int index = read - 1;
+				while (index >= 0 && buffer[index] != '\n')
+					index--;
+				if (index >= 0) {
+					end = end - read + index + 1;
+					complete = true;
+				} else
+					end -= read;
+			}
+			if (end < length) {
+				file.setLength(end);
+				System.out.println("Dropped partial record of "
+						+ (length - end) + " bytes");
 			}
-		writer.close();
+		} finally {
+			file.close();
+		}
 	}
 
-	public boolean next() throws IOException {
-		final String line = reader.readLine();
-		if (line == null || line.length() == 0) {
-			release();
-			return false;
+	private Set<String> loadCompleted() throws IOException {
+		Set<String> completed = new HashSet<String>();
+		if (!output.exists())
+			return completed;
+
+		truncatePartial();
+		CsvReader reader = new CsvReader(new FileReader(output));
+		try {
+			while (reader.next())
+				if (reader.getLength(0) > 0)
+					completed.add(reader.get(0));
+		} finally {
+			reader.close();
 		}
+		return completed;
+	}
 
-		final int length = line.length();
-		int start = 1;
-		int quote = line.indexOf('"', start);
-		int column = 0;
-		String symbol = null;
-		String name = null;
-		while (start < length) {
-			if (start + 1 != quote)
-				switch (column++) {
-				case 0:
-					symbol = line.substring(start, quote);
-					break;
-				case 1:
-					name = line.substring(start, quote);
-					request.release().setSymbol(symbol);
-
-					System.out.println("Fetching start sale of " + symbol
-							+ " - " + name);
-					Date saleStartDate = null;
-					float price = 0;
-					int currentYear = year;
-					while (currentYear > 0) {
-						resetDates(currentYear);
-						request.setEndDate(endDate.getTime()).setStartDate(
-								startDate.getTime());
-						if (!request.next())
-							break;
-						saleStartDate = request.getDate();
-						price = request.getOpen();
-						while (request.next()) {
-							saleStartDate = request.getDate();
-							price = request.getOpen();
-						}
-						currentYear--;
-					}
-					if (saleStartDate != null) {
-						writer.write('"' + symbol + "\",\"" + name + "\",\""
-								+ '"' + format.format(saleStartDate) + "\",\""
-								+ price + "\"\n");
-					} else
-						saleStartDate = null;
-					return true;
-				}
-			start = quote + 1;
-			quote = line.indexOf('"', start);
-			if (quote == -1)
-				quote = length;
+	private void write(final String symbol, final String name, final Bar bar)
+			throws IOException {
+		String date = "";
+		String price = "";
+		if (bar != null) {
+			DateFormat format = new SimpleDateFormat("yyyy-MM-dd");
+			date = format.format(EpochDays.toDate(bar.day));
+			price = Float.toString(bar.getBuyPrice());
+		}
+		String line = quote(symbol) + ',' + quote(name) + ',' + quote(date)
+				+ ',' + quote(price) + '\n';
+		synchronized (this) {
+			writer.write(line);
+			writer.flush();
 		}
-		return false;
 	}
 
-	public static void main(String[] args) throws IOException {
-		long start = System.currentTimeMillis();
-		File file = new File(
-				"/home/kevin/workspaces/github/StockListGenerator/src/main/resources/nasdaq-with-date.csv");
-		if (file.exists())
-			file.delete();
-		StockListLoader gen = new StockListLoader(file,
-				StockListLoader.class.getResourceAsStream("/nasdaq.csv"));
+	private void crawl(final String symbol, final String name) {
 		try {
-			while (gen.next())
+			Bar first = findFirst(symbol);
+			write(symbol, name, first);
+			if (first != null) {
+				found.incrementAndGet();
+				System.out.println("First sale of " + symbol + " - " + name
+						+ " on " + EpochDays.toDate(first.day));
+			} else {
+				missing.incrementAndGet();
+				System.out.println("No quotes for " + symbol + " - " + name);
+			}
+		} catch (IOException e) {
+			failed.incrementAndGet();
+			System.err.println("Crawling " + symbol + " failed: "
+					+ e.getMessage());
+		}
+	}
+
+	/**
+	 * Crawl every symbol in the input file that is not already in the output
+	 * file
+	 *
+	 * @return number of symbols crawled
+	 * @throws IOException
+	 */
+	public int load() throws IOException {
+		Set<String> completed = loadCompleted();
+		if (!completed.isEmpty())
+			System.out.println("Resuming after " + completed.size()
+					+ " symbols");
+
+		int submitted = 0;
+		writer = new FileWriter(output, true);
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		CsvReader reader = new CsvReader(new FileReader(input));
+		try {
+			// Skip header
+			reader.next();
+			while (reader.next()) {
+				if (reader.getColumnCount() < 2 || reader.indexOf(0, '^') != -1)
+					continue;
+				final String symbol = reader.get(0);
+				final String name = reader.get(1);
+				if (!completed.add(symbol))
+					continue;
+
+				executor.execute(new Runnable() {
+
+					public void run() {
+						crawl(symbol, name);
+					}
+				});
+				submitted++;
+			}
+
+			executor.shutdown();
+			while (!executor.awaitTermination(1, SECONDS))
 				;
+		} catch (InterruptedException e) {
+			throw new IOException("Crawling interrupted", e);
 		} finally {
-			gen.release();
-			System.out.println("Took "
-					+ ((System.currentTimeMillis() - start) / 1000)
-					+ " seconds");
+			executor.shutdownNow();
+			reader.close();
+			writer.close();
+		}
+		return submitted;
+	}
+
+	/**
+	 * @return number of quote requests sent
+	 */
+	public int getRequestCount() {
+		return requests.get();
+	}
+
+	/**
+	 * @return number of symbols whose first sale was found
+	 */
+	public int getFoundCount() {
+		return found.get();
+	}
+
+	/**
+	 * @return number of symbols with no quotes
+	 */
+	public int getMissingCount() {
+		return missing.get();
+	}
+
+	/**
+	 * @return number of symbols that failed and will be retried on the next
+	 *         run
+	 */
+	public int getFailedCount() {
+		return failed.get();
+	}
 
+	/**
+	 * Crawl the first sale date of every stock in a company list
+	 * <p>
+	 * First argument must be path to the output file, it is appended to and
+	 * resumed from when it exists
+	 * <p>
+	 * Second argument must be path to a company list CSV file
+	 * <p>
+	 * Optional third argument is the number of threads, defaults to
+	 * {@link #DEFAULT_THREADS}
+	 * <p>
+	 * Optional fourth argument is the maximum requests per second, defaults
+	 * to {@link #DEFAULT_RATE}
+	 *
+	 * @param args
+	 * @throws IOException
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2) {
+			System.err
+					.println("First argument must be output file, second argument must be company list CSV file");
+			return;
 		}
+
+		int threads = args.length > 2 ? Integer.parseInt(args[2])
+				: DEFAULT_THREADS;
+		double rate = args.length > 3 ? Double.parseDouble(args[3])
+				: DEFAULT_RATE;
+		long start = System.currentTimeMillis();
+		StockListLoader loader = new StockListLoader(new File(args[0]),
+				new File(args[1]), threads, rate);
+		int crawled = loader.load();
+		System.out.println("Crawled: " + crawled + " Found: "
+				+ loader.getFoundCount() + " Missing: "
+				+ loader.getMissingCount() + " Failed: "
+				+ loader.getFailedCount() + " Requests: "
+				+ loader.getRequestCount() + " Took "
+				+ (System.currentTimeMillis() - start) + "ms");
 	}
 }
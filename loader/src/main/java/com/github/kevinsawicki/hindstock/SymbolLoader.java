@@ -17,21 +17,28 @@ package com.github.kevinsawicki.hindstock;
 
 import static java.util.Locale.US;
 
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.FilenameFilter;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.LinkedList;
-import java.util.Queue;
-import java.util.Set;
-import java.util.TreeSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Loader of stock symbols
+ * <p>
+ * Each CSV file is parsed concurrently into its own list sorted by symbol and
+ * the lists are then merged in file name order so the output is the same
+ * regardless of which file finishes first.
  */
 public class SymbolLoader {
 
@@ -77,18 +84,95 @@ public class SymbolLoader {
 
 	}
 
-	private BufferedReader reader;
+	/**
+	 * Parser of a single CSV file into a list of stocks sorted by symbol
+	 */
+	private static class FileParser implements Callable<List<Stock>> {
+
+		private final File file;
+
+		private final String index;
+
+		private final List<Stock> stocks = new ArrayList<Stock>();
+
+		FileParser(final File file) {
+			this.file = file;
+			index = file.getName().substring(0, file.getName().indexOf('.'));
+		}
+
+		public List<Stock> call() throws IOException {
+			System.out.println("Processing: " + file);
+			CsvReader reader = new CsvReader(new FileReader(file));
+			try {
+				// Skip header
+				reader.next();
+				while (reader.next())
+					if (reader.getColumnCount() >= 2
+							&& reader.indexOf(0, '^') == -1)
+						stocks.add(new Stock(reader.get(0), reader.get(1),
+								index));
+			} finally {
+				reader.close();
+			}
+
+			Collections.sort(stocks);
+			// Keep the first stock listed for each symbol
+			List<Stock> unique = new ArrayList<Stock>(stocks.size());
+			for (Stock stock : stocks)
+				if (unique.isEmpty()
+						|| !unique.get(unique.size() - 1).equals(stock))
+					unique.add(stock);
+			return unique;
+		}
+	}
+
+	/**
+	 * Merge lists sorted by symbol into a single sorted list keeping the stock
+	 * from the earliest list when a symbol appears in more than one list
+	 *
+	 * @param lists
+	 * @return merged list
+	 */
+	private static List<Stock> merge(final List<List<Stock>> lists) {
+		int total = 0;
+		for (List<Stock> list : lists)
+			total += list.size();
+		List<Stock> merged = new ArrayList<Stock>(total);
+		int[] positions = new int[lists.size()];
+		while (true) {
+			Stock next = null;
+			for (int i = 0; i < positions.length; i++) {
+				List<Stock> list = lists.get(i);
+				if (positions[i] == list.size())
+					continue;
+				Stock head = list.get(positions[i]);
+				if (next == null || head.compareTo(next) < 0)
+					next = head;
+			}
+			if (next == null)
+				return merged;
+
+			merged.add(next);
+			for (int i = 0; i < positions.length; i++) {
+				List<Stock> list = lists.get(i);
+				if (positions[i] < list.size()
+						&& list.get(positions[i]).equals(next))
+					positions[i]++;
+			}
+		}
+	}
 
 	private final File output;
 
-	private final Set<Stock> stocks = new TreeSet<Stock>();
+	private final File[] files;
 
-	private String index;
+	private final int threads;
 
-	private final Queue<File> files;
+	private List<Stock> stocks = Collections.emptyList();
 
 	/**
-	 * Create loader to read symbols from given stream
+	 * Create loader to read symbols from the CSV files in the directory using
+	 * a thread per file
 	 *
 	 * @param output
 	 * @param directory
@@ -96,6 +180,21 @@ public class SymbolLoader {
 	 */
 	public SymbolLoader(final File output, final File directory)
 			throws IOException {
+		this(output, directory, 0);
+	}
+
+	/**
+	 * Create loader to read symbols from the CSV files in the directory
+	 *
+	 * @param output
+	 * @param directory
+	 * @param threads
+	 *            maximum number of files parsed at once, less than one to use
+	 *            a thread per file
+	 * @throws IOException
+	 */
+	public SymbolLoader(final File output, final File directory,
+			final int threads) throws IOException {
 		File[] csvs = directory.listFiles(new FilenameFilter() {
 
 			public boolean accept(File dir, String name) {
@@ -106,91 +205,57 @@ public class SymbolLoader {
 			throw new IllegalArgumentException("No .csv files in "
 					+ directory.getAbsolutePath());
 
-		files = new LinkedList<File>(Arrays.asList(csvs));
+		Arrays.sort(csvs);
+		files = csvs;
 		this.output = output;
+		this.threads = threads > 0 ? Math.min(threads, csvs.length)
+				: csvs.length;
 	}
 
 	/**
-	 * Writer the symbols and release the resources held by this loader
+	 * Parse all the CSV files
 	 *
+	 * @return number of unique symbols found
 	 * @throws IOException
 	 */
-	public void finish() throws IOException {
-		System.out.println("Symbols found: " + stocks.size());
-		PrintWriter writer = new PrintWriter(new FileWriter(output, false));
-		for (Stock stock : stocks)
-			stock.write(writer);
-		if (reader != null)
-			try {
-				reader.close();
-			} catch (IOException ignored) {
-				// Ignored
-			}
-		writer.close();
-	}
+	public int load() throws IOException {
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<List<Stock>>> futures = new ArrayList<Future<List<Stock>>>(
+					files.length);
+			for (File file : files)
+				futures.add(executor.submit(new FileParser(file)));
 
-	private boolean advance() throws IOException {
-		if (reader != null)
-			try {
-				reader.close();
-			} catch (IOException ignored) {
-				// Ignored
-			}
-		if (files.isEmpty())
-			return false;
-
-		File file = files.poll();
-		index = file.getName().substring(0, file.getName().indexOf('.'));
-		System.out.println("Processing: " + file);
-		reader = new BufferedReader(new FileReader(file), 8192);
-		reader.readLine();
-		return true;
+			List<List<Stock>> lists = new ArrayList<List<Stock>>(files.length);
+			for (Future<List<Stock>> future : futures)
+				lists.add(future.get());
+			stocks = merge(lists);
+			return stocks.size();
+		} catch (InterruptedException e) {
+			throw new IOException("Loading interrupted");
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException)
+				throw (IOException) cause;
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			throw new IOException(cause.getMessage());
+		} finally {
+			executor.shutdownNow();
+		}
 	}
 
 	/**
-	 * Read next stock line
+	 * Write the symbols loaded
 	 *
-	 * @return true if more lines, false otherwise
 	 * @throws IOException
 	 */
-	public boolean next() throws IOException {
-		if (reader == null && !advance())
-			return false;
-
-		String line = reader.readLine();
-		while (line == null || line.length() == 0)
-			if (advance())
-				line = reader.readLine();
-			else
-				return false;
-
-		final int length = line.length();
-		int start = 1;
-		int quote = line.indexOf('"', start);
-		if (quote == -1)
-			return advance();
-
-		int column = 0;
-		String symbol = null;
-		String name = null;
-		while (start < length) {
-			switch (column++) {
-			case 0:
-				symbol = line.substring(start, quote);
-				break;
-			case 1:
-				name = line.substring(start, quote);
-				if (symbol.indexOf('^') == -1)
-					stocks.add(new Stock(symbol, name, index));
-				return true;
-			}
-			// Advance over closing quote, comma, and next open quote
-			start = quote + 3;
-			quote = line.indexOf('"', start);
-			if (quote == -1)
-				quote = length;
-		}
-		return advance();
+	public void finish() throws IOException {
+		System.out.println("Symbols found: " + stocks.size());
+		PrintWriter writer = new PrintWriter(new FileWriter(output, false));
+		for (Stock stock : stocks)
+			stock.write(writer);
+		writer.close();
 	}
 
 	/**
@@ -214,8 +279,7 @@ public class SymbolLoader {
 
 		SymbolLoader loader = new SymbolLoader(new File(args[0]), new File(
 				args[1]));
-		while (loader.next())
-			;
+		loader.load();
 		loader.finish();
 	}
 }